@@ -0,0 +1,44 @@
+package com.sashkomusic.libraryagent.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+@Configuration
+@Slf4j
+public class KafkaConfig {
+
+    /**
+     * Same settings as the default factory, but delivers records to the listener in batches.
+     * A batch the listener throws on (DB down etc. - per-record failures are handled by the listener itself)
+     * is redelivered with exponential backoff instead of being committed; only after max-elapsed is it
+     * given up, and the analysis scheduler re-dispatches those tracks once their requests time out.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            @Value("${kafka.batch.retry.initial-interval:1000}") long initialInterval,
+            @Value("${kafka.batch.retry.max-interval:60000}") long maxInterval,
+            @Value("${kafka.batch.retry.max-elapsed:1800000}") long maxElapsed
+    ) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+
+        ExponentialBackOff backOff = new ExponentialBackOff(initialInterval, 2.0);
+        backOff.setMaxInterval(maxInterval);
+        backOff.setMaxElapsedTime(maxElapsed);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(
+                (record, ex) -> log.error("Giving up on {}-{}@{} after retries: {}",
+                        record.topic(), record.partition(), record.offset(), ex.getMessage()),
+                backOff));
+        return factory;
+    }
+}
@@ -0,0 +1,32 @@
+package com.sashkomusic.libraryagent.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "agent_state")
+@Getter
+@Setter
+public class AgentState {
+
+    @Id
+    @Column(name = "state_key", length = 100)
+    private String key;
+
+    @Column(name = "state_value", columnDefinition = "TEXT")
+    private String value;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public AgentState() {
+    }
+
+    public AgentState(String key, String value) {
+        this.key = key;
+        this.value = value;
+    }
+}
@@ -0,0 +1,96 @@
+package com.sashkomusic.libraryagent.domain.entity;
+
+import com.sashkomusic.libraryagent.domain.model.AnalysisState;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+@Entity
+@Table(name = "analysis_requests")
+@Getter
+@Setter
+public class AnalysisRequest {
+
+    @Id
+    @Column(name = "track_id")
+    private Long trackId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private AnalysisState state;
+
+    @Column(name = "analysis_version", length = 20)
+    private String analysisVersion;
+
+    @Column(name = "audio_signature", length = 64)
+    private String audioSignature;
+
+    @Column(nullable = false)
+    private int priority;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "requested_at", nullable = false)
+    private LocalDateTime requestedAt;
+
+    @Column(name = "dispatched_at")
+    private LocalDateTime dispatchedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public AnalysisRequest() {
+    }
+
+    public AnalysisRequest(Long trackId) {
+        this.trackId = trackId;
+    }
+
+    /**
+     * Already queued, running or finished for this audio with this analyzer version.
+     */
+    public boolean covers(String signature, String version) {
+        return signature != null && signature.equals(audioSignature) && Objects.equals(analysisVersion, version);
+    }
+
+    public void enqueue(int priority, String signature, String version) {
+        this.priority = state == AnalysisState.PENDING ? Math.max(this.priority, priority) : priority;
+        this.state = AnalysisState.PENDING;
+        this.audioSignature = signature;
+        this.analysisVersion = version;
+        this.attempts = 0;
+        this.lastError = null;
+        this.requestedAt = LocalDateTime.now();
+        this.dispatchedAt = null;
+        this.completedAt = null;
+    }
+
+    public void markInFlight() {
+        this.state = AnalysisState.IN_FLIGHT;
+        this.attempts++;
+        this.dispatchedAt = LocalDateTime.now();
+    }
+
+    /**
+     * The task never reached the broker - back to the queue without using up an attempt.
+     */
+    public void markDispatchFailed() {
+        this.state = AnalysisState.PENDING;
+        this.attempts = Math.max(0, attempts - 1);
+        this.dispatchedAt = null;
+    }
+
+    public void markCompleted(String errorMessage, String version) {
+        this.state = errorMessage == null ? AnalysisState.DONE : AnalysisState.FAILED;
+        this.lastError = errorMessage;
+        this.analysisVersion = version;
+        this.completedAt = LocalDateTime.now();
+    }
+}
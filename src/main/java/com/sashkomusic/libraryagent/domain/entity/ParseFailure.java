@@ -0,0 +1,53 @@
+package com.sashkomusic.libraryagent.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "parse_failures")
+@Getter
+@Setter
+public class ParseFailure {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_path", unique = true, nullable = false, length = 1000)
+    private String filePath;
+
+    @Column(name = "file_size", nullable = false)
+    private long fileSize;
+
+    @Column(name = "file_modified_millis", nullable = false)
+    private long fileModifiedMillis;
+
+    @Column(name = "failure_count", nullable = false)
+    private int failureCount;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "first_failed_at", nullable = false)
+    private LocalDateTime firstFailedAt;
+
+    @Column(name = "last_failed_at", nullable = false)
+    private LocalDateTime lastFailedAt;
+
+    @Column(name = "retry_after", nullable = false)
+    private LocalDateTime retryAfter;
+
+    public ParseFailure() {
+    }
+
+    public ParseFailure(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public boolean matches(long size, long modifiedMillis) {
+        return fileSize == size && fileModifiedMillis == modifiedMillis;
+    }
+}
@@ -6,6 +6,7 @@ import com.sashkomusic.libraryagent.domain.model.SearchEngine;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.Hibernate;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -57,6 +58,10 @@ public class Release {
     @Column
     private Integer metadataVersion;
 
+    @Version
+    @Column(name = "row_version", nullable = false)
+    private Long rowVersion;
+
     @Column
     private LocalDateTime lastProcessed;
 
@@ -86,24 +91,37 @@ public class Release {
     public Release() {
     }
 
+    /**
+     * Writes the release_artists link without loading artist.releases: inverse collections can hold
+     * thousands of rows, so the inverse side is only kept in sync when it is already in memory.
+     * The tag helpers below do the same for tag.releases.
+     */
     public void addArtist(Artist artist) {
         artists.add(artist);
-        artist.getReleases().add(this);
+        if (Hibernate.isInitialized(artist) && Hibernate.isInitialized(artist.getReleases())) {
+            artist.getReleases().add(this);
+        }
     }
 
     public void removeArtist(Artist artist) {
         artists.remove(artist);
-        artist.getReleases().remove(this);
+        if (Hibernate.isInitialized(artist) && Hibernate.isInitialized(artist.getReleases())) {
+            artist.getReleases().remove(this);
+        }
     }
 
     public void addTag(Tag tag) {
         tags.add(tag);
-        tag.getReleases().add(this);
+        if (Hibernate.isInitialized(tag) && Hibernate.isInitialized(tag.getReleases())) {
+            tag.getReleases().add(this);
+        }
     }
 
     public void removeTag(Tag tag) {
         tags.remove(tag);
-        tag.getReleases().remove(this);
+        if (Hibernate.isInitialized(tag) && Hibernate.isInitialized(tag.getReleases())) {
+            tag.getReleases().remove(this);
+        }
     }
 
     public void addTrack(Track track) {
@@ -1,10 +1,19 @@
 package com.sashkomusic.libraryagent.domain.entity;
 
+import com.sashkomusic.libraryagent.domain.model.CamelotKey;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 @Entity
@@ -29,6 +38,18 @@ public class Track {
     @Column
     private String localPath;
 
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "file_modified_millis")
+    private Long fileModifiedMillis;
+
+    @Column(name = "tags_digest", length = 64)
+    private String tagsDigest;
+
+    @Column(name = "audio_fingerprint", length = 16)
+    private String audioFingerprint;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "release_id", nullable = false)
     private Release release;
@@ -41,8 +62,32 @@ public class Track {
     )
     private Set<Artist> artists = new HashSet<>();
 
+    // Keyed by tag name (unique per track) so lookups and updates don't scan the collection
     @OneToMany(mappedBy = "track", cascade = CascadeType.ALL, orphanRemoval = true)
-    private Set<TrackTag> tags = new HashSet<>();
+    @MapKey(name = "tagName")
+    private Map<String, TrackTag> tags = new HashMap<>();
+
+    // Source of truth for tag reads; TrackTagStore mirrors it to track_tags rows in eav storage mode
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "tags", columnDefinition = "jsonb", nullable = false)
+    private Map<String, String> tagDocument = new HashMap<>();
+
+    // Typed, indexed copies of hot tags, maintained from the tag document
+    @Column(precision = 6, scale = 2)
+    private BigDecimal bpm;
+
+    @Column(name = "camelot_key")
+    private Short camelotKey;
+
+    @Column
+    private Short rating; // stars 0-5
+
+    @Column
+    private Short energy;
+
+    @Version
+    @Column(name = "row_version", nullable = false)
+    private Long rowVersion;
 
     public Track() {
     }
@@ -52,57 +97,126 @@ public class Track {
         this.trackNumber = trackNumber;
     }
 
+    public boolean hasFileStats(long size, long modifiedMillis) {
+        return fileSize != null && fileSize == size
+                && fileModifiedMillis != null && fileModifiedMillis == modifiedMillis;
+    }
+
+    public void setFileStats(long size, long modifiedMillis) {
+        if (!hasFileStats(size, modifiedMillis)) {
+            this.fileSize = size;
+            this.fileModifiedMillis = modifiedMillis;
+        }
+    }
+
+    /**
+     * Writes the track_artists link without loading artist.tracks (see Release#addArtist).
+     */
     public void addArtist(Artist artist) {
         artists.add(artist);
-        artist.getTracks().add(this);
+        if (Hibernate.isInitialized(artist) && Hibernate.isInitialized(artist.getTracks())) {
+            artist.getTracks().add(this);
+        }
     }
 
     public void removeArtist(Artist artist) {
         artists.remove(artist);
-        artist.getTracks().remove(this);
+        if (Hibernate.isInitialized(artist) && Hibernate.isInitialized(artist.getTracks())) {
+            artist.getTracks().remove(this);
+        }
     }
 
+    /**
+     * Tag document only - callers go through TrackTagStore, which also maintains the track_tags rows
+     * when the storage mode asks for them. Setting a tag to the value it already has is a no-op,
+     * so untouched tags never become dirty and a flush only carries real changes.
+     */
     public void setTag(String tagName, String tagValue) {
-        TrackTag tag = tags.stream()
-                .filter(t -> t.getTagName().equals(tagName))
-                .findFirst()
-                .orElseGet(() -> {
-                    TrackTag newTag = new TrackTag(this, tagName, tagValue);
-                    tags.add(newTag);
-                    return newTag;
-                });
-        tag.setTagValue(tagValue);
-        tag.setLastSyncedAt(java.time.LocalDateTime.now());
-    }
-
-    public void prependToTag(String tagName, String newValue) {
-        TrackTag tag = tags.stream()
-                .filter(t -> t.getTagName().equals(tagName))
-                .findFirst()
-                .orElse(null);
-
-        if (tag == null) {
-            setTag(tagName, newValue);
-        } else {
-            String existingValue = tag.getTagValue();
-            String combined = newValue + "; " + existingValue;
-            tag.setTagValue(combined);
-            tag.setLastSyncedAt(java.time.LocalDateTime.now());
+        if (!Objects.equals(tagDocument.get(tagName), tagValue) || !tagDocument.containsKey(tagName)) {
+            tagDocument.put(tagName, tagValue);
+            refreshTypedColumns();
         }
     }
 
     public java.util.Optional<String> getTag(String tagName) {
-        return tags.stream()
-                .filter(t -> t.getTagName().equals(tagName))
-                .findFirst()
-                .map(TrackTag::getTagValue);
+        return java.util.Optional.ofNullable(tagDocument.get(tagName));
     }
 
     public void removeTag(String tagName) {
-        tags.removeIf(t -> t.getTagName().equals(tagName));
+        if (tagDocument.remove(tagName) != null) {
+            refreshTypedColumns();
+        }
+    }
+
+    public void setTagRow(String tagName, String tagValue) {
+        TrackTag tag = tags.get(tagName);
+        if (tag == null) {
+            tags.put(tagName, new TrackTag(this, tagName, tagValue));
+        } else if (!Objects.equals(tag.getTagValue(), tagValue)) {
+            tag.setTagValue(tagValue);
+            tag.setLastSyncedAt(java.time.LocalDateTime.now());
+        }
+    }
+
+    public void removeTagRow(String tagName) {
+        tags.remove(tagName);
     }
 
     public boolean hasTag(String tagName) {
-        return tags.stream().anyMatch(t -> t.getTagName().equals(tagName));
+        return tagDocument.containsKey(tagName);
+    }
+
+    public void refreshTypedColumns() {
+        bpm = parseBpm(firstTag("TBPM", "BPM"));
+        camelotKey = CamelotKey.parse(tagDocument.get("INITIALKEY"))
+                .or(() -> CamelotKey.parse(tagDocument.get("TKEY")))
+                .map(CamelotKey::toCode)
+                .orElse(null);
+        rating = parseRating(firstTag("RATING WMP", "RATING"));
+        energy = parseEnergy(firstTag("DJ_ENERGY", "TXXX:DJ_ENERGY"));
+    }
+
+    private String firstTag(String... tagNames) {
+        for (String tagName : tagNames) {
+            String value = tagDocument.get(tagName);
+            if (value != null && !value.isBlank()) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static BigDecimal parseBpm(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            BigDecimal parsed = new BigDecimal(value.trim().replace(',', '.')).setScale(2, RoundingMode.HALF_UP);
+            return parsed.signum() > 0 && parsed.compareTo(BigDecimal.valueOf(10000)) < 0 ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * WMP-style rating (0-255, Traktor writes 51 per star) to stars.
+     */
+    private static Short parseRating(String value) {
+        if (value == null || !value.trim().matches("\\d{1,3}")) {
+            return null;
+        }
+        int wmp = Integer.parseInt(value.trim());
+        if (wmp == 0) {
+            return 0;
+        }
+        return (short) Math.max(1, Math.min(5, Math.round(wmp / 51.0f)));
+    }
+
+    private static Short parseEnergy(String value) {
+        if (value == null) {
+            return null;
+        }
+        java.util.regex.Matcher matcher = java.util.regex.Pattern.compile("\\d{1,3}").matcher(value);
+        return matcher.find() ? Short.valueOf(matcher.group()) : null;
     }
 }
@@ -1,8 +1,11 @@
 package com.sashkomusic.libraryagent.domain.entity;
 
+import com.sashkomusic.libraryagent.domain.model.AnalysisFeatures;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -130,6 +133,14 @@ public class TrackAnalysis {
     @Column(name = "dynamic_complexity", precision = 8, scale = 6)
     private BigDecimal dynamicComplexity;
 
+    // Compact copy of all features (AnalysisFeatures layout), read by bulk analytics
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "features", columnDefinition = "real[]")
+    private float[] features;
+
+    @Column(name = "features_version")
+    private Short featuresVersion;
+
     // Metadata
     @Column(name = "analyzed_at", nullable = false)
     private LocalDateTime analyzedAt = LocalDateTime.now();
@@ -154,4 +165,14 @@ public class TrackAnalysis {
     public boolean isSuccessful() {
         return !hasError();
     }
+
+    public void refreshFeatures() {
+        if (hasError()) {
+            this.features = null;
+            this.featuresVersion = null;
+        } else {
+            this.features = AnalysisFeatures.fromAnalysis(this);
+            this.featuresVersion = AnalysisFeatures.VERSION;
+        }
+    }
 }
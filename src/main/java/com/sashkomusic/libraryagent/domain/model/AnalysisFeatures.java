@@ -0,0 +1,155 @@
+package com.sashkomusic.libraryagent.domain.model;
+
+import com.sashkomusic.libraryagent.domain.entity.TrackAnalysis;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fixed layout of the analysis feature vector: rhythmic (4), MFCC mean/var (26), timbral (3), energy (2).
+ * Missing values are NaN.
+ */
+public final class AnalysisFeatures {
+
+    /**
+     * Layout version stored next to persisted vectors - bump when the layout changes.
+     */
+    public static final short VERSION = 1;
+
+    public static final List<String> NAMES;
+
+    static {
+        List<String> names = new ArrayList<>(List.of("bpm", "danceability", "beats_loudness", "onset_rate"));
+        for (int i = 1; i <= 13; i++) {
+            names.add("mfcc_" + i + "_mean");
+            names.add("mfcc_" + i + "_var");
+        }
+        names.addAll(List.of("spectral_centroid", "spectral_rolloff", "dissonance", "loudness", "dynamic_complexity"));
+        NAMES = Collections.unmodifiableList(names);
+    }
+
+    public static final int COUNT = NAMES.size();
+
+    public static final int DANCEABILITY = 1;
+    public static final int MFCC_FIRST = 4;
+    public static final int SPECTRAL_CENTROID = 30;
+    public static final int SPECTRAL_ROLLOFF = 31;
+    public static final int DISSONANCE = 32;
+    public static final int LOUDNESS = 33;
+
+    /**
+     * Timbre-describing subset used for similarity: MFCC statistics, spectral shape, loudness, danceability.
+     */
+    public static final int[] SIMILARITY_FEATURES = similarityFeatures();
+
+    private AnalysisFeatures() {
+    }
+
+    /**
+     * Group object the feature sits in inside the analyzer result JSON ("features" -> group -> name).
+     */
+    public static String groupOf(int index) {
+        if (index < MFCC_FIRST) {
+            return "rhythmic";
+        }
+        return index < LOUDNESS ? "timbral" : "energy";
+    }
+
+    public static float[] fromAnalysis(TrackAnalysis analysis) {
+        BigDecimal[] values = {
+                analysis.getBpm(), analysis.getDanceability(), analysis.getBeatsLoudness(), analysis.getOnsetRate(),
+                analysis.getMfcc1Mean(), analysis.getMfcc1Var(), analysis.getMfcc2Mean(), analysis.getMfcc2Var(),
+                analysis.getMfcc3Mean(), analysis.getMfcc3Var(), analysis.getMfcc4Mean(), analysis.getMfcc4Var(),
+                analysis.getMfcc5Mean(), analysis.getMfcc5Var(), analysis.getMfcc6Mean(), analysis.getMfcc6Var(),
+                analysis.getMfcc7Mean(), analysis.getMfcc7Var(), analysis.getMfcc8Mean(), analysis.getMfcc8Var(),
+                analysis.getMfcc9Mean(), analysis.getMfcc9Var(), analysis.getMfcc10Mean(), analysis.getMfcc10Var(),
+                analysis.getMfcc11Mean(), analysis.getMfcc11Var(), analysis.getMfcc12Mean(), analysis.getMfcc12Var(),
+                analysis.getMfcc13Mean(), analysis.getMfcc13Var(),
+                analysis.getSpectralCentroid(), analysis.getSpectralRolloff(), analysis.getDissonance(),
+                analysis.getLoudness(), analysis.getDynamicComplexity()
+        };
+
+        float[] vector = new float[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            vector[i] = values[i] != null ? values[i].floatValue() : Float.NaN;
+        }
+        return vector;
+    }
+
+    /**
+     * Copies a vector in this layout into the entity columns (NaN -> null).
+     */
+    public static void applyTo(double[] values, TrackAnalysis analysis) {
+        analysis.setBpm(decimal(values[0]));
+        analysis.setDanceability(decimal(values[1]));
+        analysis.setBeatsLoudness(decimal(values[2]));
+        analysis.setOnsetRate(decimal(values[3]));
+        analysis.setMfcc1Mean(decimal(values[4]));
+        analysis.setMfcc1Var(decimal(values[5]));
+        analysis.setMfcc2Mean(decimal(values[6]));
+        analysis.setMfcc2Var(decimal(values[7]));
+        analysis.setMfcc3Mean(decimal(values[8]));
+        analysis.setMfcc3Var(decimal(values[9]));
+        analysis.setMfcc4Mean(decimal(values[10]));
+        analysis.setMfcc4Var(decimal(values[11]));
+        analysis.setMfcc5Mean(decimal(values[12]));
+        analysis.setMfcc5Var(decimal(values[13]));
+        analysis.setMfcc6Mean(decimal(values[14]));
+        analysis.setMfcc6Var(decimal(values[15]));
+        analysis.setMfcc7Mean(decimal(values[16]));
+        analysis.setMfcc7Var(decimal(values[17]));
+        analysis.setMfcc8Mean(decimal(values[18]));
+        analysis.setMfcc8Var(decimal(values[19]));
+        analysis.setMfcc9Mean(decimal(values[20]));
+        analysis.setMfcc9Var(decimal(values[21]));
+        analysis.setMfcc10Mean(decimal(values[22]));
+        analysis.setMfcc10Var(decimal(values[23]));
+        analysis.setMfcc11Mean(decimal(values[24]));
+        analysis.setMfcc11Var(decimal(values[25]));
+        analysis.setMfcc12Mean(decimal(values[26]));
+        analysis.setMfcc12Var(decimal(values[27]));
+        analysis.setMfcc13Mean(decimal(values[28]));
+        analysis.setMfcc13Var(decimal(values[29]));
+        analysis.setSpectralCentroid(decimal(values[30]));
+        analysis.setSpectralRolloff(decimal(values[31]));
+        analysis.setDissonance(decimal(values[32]));
+        analysis.setLoudness(decimal(values[33]));
+        analysis.setDynamicComplexity(decimal(values[34]));
+    }
+
+    public static float[] select(float[] vector, int[] indices) {
+        float[] selected = new float[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            selected[i] = vector[indices[i]];
+        }
+        return selected;
+    }
+
+    public static boolean isEmpty(float[] vector) {
+        for (float value : vector) {
+            if (!Float.isNaN(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static BigDecimal decimal(double value) {
+        return Double.isNaN(value) ? null : BigDecimal.valueOf(value);
+    }
+
+    private static int[] similarityFeatures() {
+        int[] indices = new int[26 + 5];
+        for (int i = 0; i < 26; i++) {
+            indices[i] = MFCC_FIRST + i;
+        }
+        indices[26] = SPECTRAL_CENTROID;
+        indices[27] = SPECTRAL_ROLLOFF;
+        indices[28] = DISSONANCE;
+        indices[29] = LOUDNESS;
+        indices[30] = DANCEABILITY;
+        return indices;
+    }
+}
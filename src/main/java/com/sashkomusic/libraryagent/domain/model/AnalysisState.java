@@ -0,0 +1,8 @@
+package com.sashkomusic.libraryagent.domain.model;
+
+public enum AnalysisState {
+    PENDING,
+    IN_FLIGHT,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,88 @@
+package com.sashkomusic.libraryagent.domain.model;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Musical key on the Camelot wheel (1A-12A minor, 1B-12B major).
+ * Parses Camelot ("8A"), Open Key ("1m"/"1d", as written by Traktor) and musical notation ("Am", "F#m", "Db").
+ * Stored as a smallint code: (number - 1) * 2 + (major ? 1 : 0).
+ */
+public record CamelotKey(
+        int number,
+        boolean major
+) {
+    private static final Pattern NUMERIC = Pattern.compile("^(\\d{1,2})\\s*([abdm])$");
+    private static final Pattern MUSICAL = Pattern.compile("^([a-g])\\s*([#♯b♭]?)\\s*(m|min|minor|maj|major)?$");
+
+    // Pitch classes of a..g
+    private static final int[] PITCH_CLASSES = {9, 11, 0, 2, 4, 5, 7};
+
+    public static Optional<CamelotKey> parse(String value) {
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        String key = value.trim().toLowerCase();
+
+        Matcher numeric = NUMERIC.matcher(key);
+        if (numeric.matches()) {
+            int number = Integer.parseInt(numeric.group(1));
+            if (number < 1 || number > 12) {
+                return Optional.empty();
+            }
+            String mode = numeric.group(2);
+            if ("d".equals(mode) || "m".equals(mode)) {
+                // Open Key: 1m = Am = 8A
+                return Optional.of(new CamelotKey(((number + 6) % 12) + 1, "d".equals(mode)));
+            }
+            return Optional.of(new CamelotKey(number, "b".equals(mode)));
+        }
+
+        Matcher musical = MUSICAL.matcher(key);
+        if (musical.matches()) {
+            int pitchClass = PITCH_CLASSES[musical.group(1).charAt(0) - 'a'];
+            String accidental = musical.group(2);
+            if ("#".equals(accidental) || "♯".equals(accidental)) {
+                pitchClass += 1;
+            } else if ("b".equals(accidental) || "♭".equals(accidental)) {
+                pitchClass += 11;
+            }
+            pitchClass %= 12;
+
+            String mode = musical.group(3);
+            boolean major = mode == null || mode.startsWith("maj");
+            int fifths = (pitchClass * 7) % 12;
+            int number = major ? ((fifths + 7) % 12) + 1 : ((fifths + 4) % 12) + 1;
+            return Optional.of(new CamelotKey(number, major));
+        }
+
+        return Optional.empty();
+    }
+
+    public static CamelotKey fromCode(int code) {
+        return new CamelotKey(code / 2 + 1, code % 2 == 1);
+    }
+
+    public short toCode() {
+        return (short) ((number - 1) * 2 + (major ? 1 : 0));
+    }
+
+    /**
+     * Harmonically compatible keys: same key, ±1 on the wheel and the relative major/minor.
+     */
+    public List<CamelotKey> compatibleKeys() {
+        return List.of(
+                this,
+                new CamelotKey(number % 12 + 1, major),
+                new CamelotKey((number + 10) % 12 + 1, major),
+                new CamelotKey(number, !major)
+        );
+    }
+
+    @Override
+    public String toString() {
+        return number + (major ? "B" : "A");
+    }
+}
@@ -0,0 +1,10 @@
+package com.sashkomusic.libraryagent.domain.model;
+
+import java.nio.file.Path;
+
+public record ScannedFile(
+        Path path,
+        long size,
+        long modifiedMillis
+) {
+}
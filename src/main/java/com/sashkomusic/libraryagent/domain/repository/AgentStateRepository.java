@@ -0,0 +1,9 @@
+package com.sashkomusic.libraryagent.domain.repository;
+
+import com.sashkomusic.libraryagent.domain.entity.AgentState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AgentStateRepository extends JpaRepository<AgentState, String> {
+}
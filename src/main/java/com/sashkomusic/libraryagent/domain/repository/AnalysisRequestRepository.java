@@ -0,0 +1,61 @@
+package com.sashkomusic.libraryagent.domain.repository;
+
+import com.sashkomusic.libraryagent.domain.entity.AnalysisRequest;
+import com.sashkomusic.libraryagent.domain.model.AnalysisState;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AnalysisRequestRepository extends JpaRepository<AnalysisRequest, Long> {
+
+    long countByState(AnalysisState state);
+
+    List<AnalysisRequest> findByStateOrderByPriorityDescRequestedAtAsc(AnalysisState state, Pageable pageable);
+
+    List<AnalysisRequest> findByStateAndDispatchedAtBefore(AnalysisState state, LocalDateTime dispatchedBefore);
+
+    /**
+     * Queues tracks that were never requested and have no analysis for the given version.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO analysis_requests (track_id, state, analysis_version, priority, attempts, requested_at) " +
+                   "SELECT t.id, 'PENDING', :version, :priority, 0, now() FROM tracks t " +
+                   "LEFT JOIN tracks_analyzed a ON a.track_id = t.id " +
+                   "WHERE t.local_path IS NOT NULL " +
+                   "AND NOT EXISTS (SELECT 1 FROM analysis_requests r WHERE r.track_id = t.id) " +
+                   "AND (a.track_id IS NULL OR a.analysis_version IS DISTINCT FROM :version) " +
+                   "ORDER BY t.id LIMIT :limit " +
+                   "ON CONFLICT (track_id) DO NOTHING",
+           nativeQuery = true)
+    int enqueueUnanalyzed(@Param("version") String version, @Param("priority") int priority, @Param("limit") int limit);
+
+    /**
+     * Re-queues finished requests made for an older analyzer version.
+     */
+    @Modifying
+    @Query(value = "UPDATE analysis_requests SET state = 'PENDING', analysis_version = :version, priority = :priority, " +
+                   "attempts = 0, last_error = NULL, requested_at = now(), dispatched_at = NULL, completed_at = NULL " +
+                   "WHERE track_id IN (SELECT track_id FROM analysis_requests " +
+                   "WHERE state IN ('DONE', 'FAILED') AND analysis_version IS DISTINCT FROM :version " +
+                   "ORDER BY track_id LIMIT :limit)",
+           nativeQuery = true)
+    int requeueOutdated(@Param("version") String version, @Param("priority") int priority, @Param("limit") int limit);
+
+    /**
+     * Swaps a size:mtime signature for the audio fingerprint of the same file, so a request made before
+     * the fingerprint existed still covers that audio.
+     */
+    @Modifying
+    @Query(value = "UPDATE analysis_requests SET audio_signature = :fingerprint " +
+                   "WHERE track_id = :trackId AND audio_signature = :legacySignature",
+           nativeQuery = true)
+    int replaceSignature(@Param("trackId") Long trackId, @Param("legacySignature") String legacySignature,
+                         @Param("fingerprint") String fingerprint);
+}
@@ -0,0 +1,51 @@
+package com.sashkomusic.libraryagent.domain.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Name -> id resolution for the name-keyed dictionaries (artists, labels, tags) in one round trip:
+ * INSERT ... ON CONFLICT (name) DO NOTHING RETURNING id, falling back to the existing row.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class DictionaryRepository {
+
+    public enum Dictionary {
+        ARTISTS("artists"),
+        LABELS("labels"),
+        TAGS("tags");
+
+        private final String upsert;
+        private final String select;
+
+        Dictionary(String table) {
+            this.upsert = "WITH inserted AS (INSERT INTO " + table + " (name) VALUES (?) " +
+                    "ON CONFLICT (name) DO NOTHING RETURNING id) " +
+                    "SELECT id, true FROM inserted UNION ALL SELECT id, false FROM " + table + " WHERE name = ? LIMIT 1";
+            this.select = "SELECT id FROM " + table + " WHERE name = ?";
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long upsertId(Dictionary dictionary, String name) {
+        List<Long> ids = jdbcTemplate.query(dictionary.upsert, (rs, rowNum) -> {
+            if (rs.getBoolean(2)) {
+                log.info("Created {} entry: '{}'", dictionary.name().toLowerCase(), name);
+            }
+            return rs.getLong(1);
+        }, name, name);
+        if (!ids.isEmpty()) {
+            return ids.getFirst();
+        }
+
+        // Lost the race to a concurrent insert that committed after this statement's snapshot - a new statement sees it
+        return jdbcTemplate.queryForObject(dictionary.select, Long.class, name);
+    }
+}
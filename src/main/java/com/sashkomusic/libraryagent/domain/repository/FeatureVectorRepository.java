@@ -0,0 +1,69 @@
+package com.sashkomusic.libraryagent.domain.repository;
+
+import com.sashkomusic.libraryagent.domain.model.AnalysisFeatures;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Bulk reader for tracks_analyzed.features. Vectors are fetched in Postgres binary array
+ * format (array_send) and decoded directly into float[] - no BigDecimal or boxed Float per value.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FeatureVectorRepository {
+
+    private static final String SELECT_VECTORS =
+            "SELECT track_id, array_send(features) FROM tracks_analyzed " +
+            "WHERE features_version = ? AND features IS NOT NULL " +
+            "AND (error_message IS NULL OR error_message = '')";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @FunctionalInterface
+    public interface VectorConsumer {
+        void accept(long trackId, float[] features);
+    }
+
+    /**
+     * Streams every current-version vector through the consumer (server-side cursor, 1000 rows per fetch).
+     */
+    @Transactional(readOnly = true)
+    public void forEachVector(VectorConsumer consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    SELECT_VECTORS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(1000);
+            statement.setShort(1, AnalysisFeatures.VERSION);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), decode(rs.getBytes(2))));
+    }
+
+    /**
+     * Decodes a one-dimensional float4[] in binary array format; NULL elements become NaN.
+     */
+    static float[] decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int dimensions = buffer.getInt();
+        if (dimensions == 0) {
+            return new float[0];
+        }
+        buffer.getInt(); // has-nulls flag
+        buffer.getInt(); // element type oid
+        int length = buffer.getInt();
+        buffer.getInt(); // lower bound
+
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            int elementLength = buffer.getInt();
+            values[i] = elementLength < 0 ? Float.NaN : buffer.getFloat();
+        }
+        return values;
+    }
+}
@@ -1,9 +1,13 @@
 package com.sashkomusic.libraryagent.domain.repository;
 
 import com.sashkomusic.libraryagent.domain.entity.Release;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +18,16 @@ public interface ReleaseRepository extends JpaRepository<Release, Long> {
     Optional<Release> findByMasterId(String masterId);
 
     boolean existsBySourceId(String sourceId);
+
+    Optional<Release> findFirstByDirectoryPath(String directoryPath);
+
+    /**
+     * Keyset page of releases processed with an older metadata version (served by idx_releases_metadata_version).
+     */
+    @Query("SELECT r FROM Release r WHERE (r.metadataVersion IS NULL OR r.metadataVersion < :version) " +
+           "AND r.id > :afterId ORDER BY r.id")
+    List<Release> findOutdated(@Param("version") int version, @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT COUNT(r) FROM Release r WHERE r.metadataVersion IS NULL OR r.metadataVersion < :version")
+    long countOutdated(@Param("version") int version);
 }
@@ -0,0 +1,97 @@
+package com.sashkomusic.libraryagent.domain.repository;
+
+import com.sashkomusic.libraryagent.domain.model.AnalysisFeatures;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Batched INSERT ... ON CONFLICT (track_id) upserts into tracks_analyzed, bypassing entity loading.
+ * A failed analysis only records the error and clears the feature vector, same as the entity does.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TrackAnalysisUpsertRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String UPSERT_SUCCESS =
+            "INSERT INTO tracks_analyzed (track_id, " + String.join(", ", AnalysisFeatures.NAMES) +
+            ", features, features_version, analyzed_at, analysis_version, error_message) " +
+            "VALUES (?, " + "?, ".repeat(AnalysisFeatures.COUNT) + "?, ?, ?, ?, NULL) " +
+            "ON CONFLICT (track_id) DO UPDATE SET " +
+            AnalysisFeatures.NAMES.stream()
+                    .map(column -> column + " = EXCLUDED." + column)
+                    .collect(Collectors.joining(", ")) +
+            ", features = EXCLUDED.features, features_version = EXCLUDED.features_version, " +
+            "analyzed_at = EXCLUDED.analyzed_at, analysis_version = EXCLUDED.analysis_version, error_message = NULL";
+
+    private static final String UPSERT_FAILURE =
+            "INSERT INTO tracks_analyzed (track_id, analyzed_at, analysis_version, error_message) " +
+            "VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (track_id) DO UPDATE SET " +
+            "analyzed_at = EXCLUDED.analyzed_at, error_message = EXCLUDED.error_message, " +
+            "features = NULL, features_version = NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${analysis.version:1.0}")
+    private String analysisVersion;
+
+    /**
+     * @param values features in AnalysisFeatures layout (NaN = missing), null for a failed analysis
+     */
+    public record Row(long trackId, double[] values, String errorMessage) {
+
+        public boolean isSuccessful() {
+            return values != null && errorMessage == null;
+        }
+    }
+
+    public void upsert(List<Row> rows) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Row> successful = rows.stream().filter(Row::isSuccessful).toList();
+        List<Row> failed = rows.stream().filter(row -> !row.isSuccessful()).toList();
+
+        if (!successful.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SUCCESS, successful, BATCH_SIZE, (ps, row) -> bindSuccess(ps, row, now));
+        }
+        if (!failed.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_FAILURE, failed, BATCH_SIZE, (ps, row) -> {
+                ps.setLong(1, row.trackId());
+                ps.setObject(2, now);
+                ps.setString(3, analysisVersion);
+                ps.setString(4, row.errorMessage() != null ? row.errorMessage() : "Unknown error during analysis");
+            });
+        }
+    }
+
+    private void bindSuccess(PreparedStatement ps, Row row, LocalDateTime now) throws SQLException {
+        int index = 1;
+        ps.setLong(index++, row.trackId());
+
+        float[] features = new float[AnalysisFeatures.COUNT];
+        for (int i = 0; i < AnalysisFeatures.COUNT; i++) {
+            double value = row.values()[i];
+            features[i] = (float) value;
+            if (Double.isNaN(value)) {
+                ps.setNull(index++, Types.NUMERIC);
+            } else {
+                ps.setDouble(index++, value);
+            }
+        }
+
+        ps.setObject(index++, features);
+        ps.setShort(index++, AnalysisFeatures.VERSION);
+        ps.setObject(index++, now);
+        ps.setString(index, analysisVersion);
+    }
+}
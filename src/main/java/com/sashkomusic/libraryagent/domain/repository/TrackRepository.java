@@ -1,13 +1,101 @@
 package com.sashkomusic.libraryagent.domain.repository;
 
 import com.sashkomusic.libraryagent.domain.entity.Track;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TrackRepository extends JpaRepository<Track, Long> {
 
     Optional<Track> findByLocalPath(String localPath);
+
+    /**
+     * Index range scan over the typed tag columns, e.g. 122-128 BPM in 8A/9A rated 4+.
+     */
+    List<Track> findByCamelotKeyInAndBpmBetweenAndRatingGreaterThanEqual(
+            Collection<Short> camelotKeys, BigDecimal minBpm, BigDecimal maxBpm, Short minRating);
+
+    List<Track> findByBpmBetween(BigDecimal minBpm, BigDecimal maxBpm);
+
+    /**
+     * Exact tag match served by the GIN index on the tags document.
+     */
+    @Query(value = "SELECT * FROM tracks WHERE tags @> jsonb_build_object(CAST(:tagName AS text), CAST(:tagValue AS text))",
+           nativeQuery = true)
+    List<Track> findByTagValue(@Param("tagName") String tagName, @Param("tagValue") String tagValue);
+
+    /**
+     * Path-sorted cursor over all tracks, ordered by byte order (COLLATE "C")
+     * so it can be merge-joined against a sorted directory walk.
+     */
+    @Query(value = "SELECT id AS \"id\", local_path AS \"localPath\", file_size AS \"fileSize\", " +
+                   "file_modified_millis AS \"fileModifiedMillis\" " +
+                   "FROM tracks WHERE local_path IS NOT NULL " +
+                   "ORDER BY local_path COLLATE \"C\"",
+           nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<TrackFileView> streamFileViewsOrderedByPath();
+
+    /**
+     * Key and BPM of every keyed track for the harmonic mixing index (analysed BPM when available).
+     */
+    @Query(value = "SELECT t.id AS \"id\", t.camelot_key AS \"camelotKey\", t.bpm AS \"tagBpm\", " +
+                   "a.bpm AS \"analysisBpm\" " +
+                   "FROM tracks t LEFT JOIN tracks_analyzed a ON a.track_id = t.id " +
+                   "WHERE t.camelot_key IS NOT NULL",
+           nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    List<HarmonicView> findHarmonicViews();
+
+    /**
+     * Next page (by id) of MP3/FLAC tracks that have no audio fingerprint yet - ingested before fingerprinting existed.
+     */
+    @Query(value = "SELECT id AS \"id\", local_path AS \"localPath\", file_size AS \"fileSize\", " +
+                   "file_modified_millis AS \"fileModifiedMillis\" " +
+                   "FROM tracks WHERE audio_fingerprint IS NULL AND id > :afterId " +
+                   "AND (lower(local_path) LIKE '%.mp3' OR lower(local_path) LIKE '%.flac') " +
+                   "ORDER BY id LIMIT :limit",
+           nativeQuery = true)
+    List<TrackFileView> findUnfingerprinted(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * Sets the fingerprint unless a sync got there first. Bumps the version so a writer holding
+     * the track from before fails and retries instead of writing the fingerprint back to null.
+     */
+    @Modifying
+    @Query("UPDATE Track t SET t.audioFingerprint = :fingerprint, t.rowVersion = t.rowVersion + 1 " +
+           "WHERE t.id = :id AND t.audioFingerprint IS NULL")
+    int setAudioFingerprintIfMissing(@Param("id") Long id, @Param("fingerprint") String fingerprint);
+
+    interface TrackFileView {
+        Long getId();
+
+        String getLocalPath();
+
+        Long getFileSize();
+
+        Long getFileModifiedMillis();
+    }
+
+    interface HarmonicView {
+        Long getId();
+
+        Number getCamelotKey();
+
+        BigDecimal getTagBpm();
+
+        BigDecimal getAnalysisBpm();
+    }
 }
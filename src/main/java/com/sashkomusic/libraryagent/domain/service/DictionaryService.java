@@ -0,0 +1,81 @@
+package com.sashkomusic.libraryagent.domain.service;
+
+import com.sashkomusic.libraryagent.domain.entity.Artist;
+import com.sashkomusic.libraryagent.domain.entity.Label;
+import com.sashkomusic.libraryagent.domain.entity.Tag;
+import com.sashkomusic.libraryagent.domain.repository.ArtistRepository;
+import com.sashkomusic.libraryagent.domain.repository.DictionaryRepository;
+import com.sashkomusic.libraryagent.domain.repository.DictionaryRepository.Dictionary;
+import com.sashkomusic.libraryagent.domain.repository.LabelRepository;
+import com.sashkomusic.libraryagent.domain.repository.TagRepository;
+import com.sashkomusic.libraryagent.domain.service.utils.AfterCommit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Find-or-create for artists, labels and tags by name, backed by a process-wide LRU of name -> id.
+ * A hit costs no query (the entity is returned as a reference); a miss is resolved by an upsert on the
+ * caller's transaction (no second pooled connection), and its id is cached only once that commits -
+ * a rolled-back insert never leaves a dangling id behind. Dictionary rows are never deleted,
+ * which is what makes caching committed ids safe.
+ */
+@Service
+public class DictionaryService {
+
+    private final DictionaryRepository dictionaryRepository;
+    private final ArtistRepository artistRepository;
+    private final LabelRepository labelRepository;
+    private final TagRepository tagRepository;
+    private final Map<Dictionary, Map<String, Long>> caches = new EnumMap<>(Dictionary.class);
+
+    public DictionaryService(DictionaryRepository dictionaryRepository,
+                             ArtistRepository artistRepository,
+                             LabelRepository labelRepository,
+                             TagRepository tagRepository,
+                             @Value("${dictionary.cache.max-size:10000}") int maxSize) {
+        this.dictionaryRepository = dictionaryRepository;
+        this.artistRepository = artistRepository;
+        this.labelRepository = labelRepository;
+        this.tagRepository = tagRepository;
+        for (Dictionary dictionary : Dictionary.values()) {
+            caches.put(dictionary, lruMap(maxSize));
+        }
+    }
+
+    public Artist artist(String name) {
+        return artistRepository.getReferenceById(idOf(Dictionary.ARTISTS, name));
+    }
+
+    public Label label(String name) {
+        return labelRepository.getReferenceById(idOf(Dictionary.LABELS, name));
+    }
+
+    public Tag tag(String name) {
+        return tagRepository.getReferenceById(idOf(Dictionary.TAGS, name));
+    }
+
+    private long idOf(Dictionary dictionary, String name) {
+        Map<String, Long> cache = caches.get(dictionary);
+        Long id = cache.get(name);
+        if (id == null) {
+            long resolved = dictionaryRepository.upsertId(dictionary, name);
+            AfterCommit.run(() -> cache.put(name, resolved));
+            id = resolved;
+        }
+        return id;
+    }
+
+    private static Map<String, Long> lruMap(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+}
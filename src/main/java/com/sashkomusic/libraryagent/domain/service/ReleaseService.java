@@ -7,22 +7,40 @@ import com.sashkomusic.libraryagent.domain.entity.Tag;
 import com.sashkomusic.libraryagent.domain.entity.Track;
 import com.sashkomusic.libraryagent.domain.model.ReleaseFormat;
 import com.sashkomusic.libraryagent.domain.model.ReleaseMetadata;
+import com.sashkomusic.libraryagent.domain.model.ReleaseMetadataFile;
 import com.sashkomusic.libraryagent.domain.model.ReleaseType;
-import com.sashkomusic.libraryagent.domain.repository.ArtistRepository;
-import com.sashkomusic.libraryagent.domain.repository.LabelRepository;
+import com.sashkomusic.libraryagent.domain.model.TrackMetadata;
 import com.sashkomusic.libraryagent.domain.repository.ReleaseRepository;
-import com.sashkomusic.libraryagent.domain.repository.TagRepository;
+import com.sashkomusic.libraryagent.domain.service.analysis.AnalysisScheduler;
+import com.sashkomusic.libraryagent.domain.service.mixing.HarmonicMixingIndex;
+import com.sashkomusic.libraryagent.domain.service.similarity.SimilarTrackIndex;
+import com.sashkomusic.libraryagent.domain.service.tag.TrackTagStore;
+import com.sashkomusic.libraryagent.domain.service.utils.AfterCommit;
+import com.sashkomusic.libraryagent.domain.service.utils.AudioFingerprinter;
 import com.sashkomusic.libraryagent.domain.service.utils.AudioTagExtractor;
+import com.sashkomusic.libraryagent.domain.service.utils.OptimisticRetry;
 import com.sashkomusic.libraryagent.domain.service.processFolder.FileOrganizer;
-import com.sashkomusic.libraryagent.messaging.producer.AnalyzeTrackProducer;
-import com.sashkomusic.libraryagent.messaging.producer.dto.AnalyzeTrackTaskDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 
 @Slf4j
 @Service
@@ -30,26 +48,15 @@ import java.util.List;
 public class ReleaseService {
 
     private final ReleaseRepository releaseRepository;
-    private final ArtistRepository artistRepository;
-    private final TagRepository tagRepository;
-    private final LabelRepository labelRepository;
+    private final DictionaryService dictionaryService;
+    private final TrackTagStore tagStore;
     private final AudioTagExtractor tagExtractor;
-    private final AnalyzeTrackProducer analyzeTrackProducer;
+    private final AudioFingerprinter fingerprinter;
+    private final AnalysisScheduler analysisScheduler;
+    private final HarmonicMixingIndex harmonicIndex;
+    private final SimilarTrackIndex similarityIndex;
+    private final OptimisticRetry optimisticRetry;
 
-    @Transactional
-    public void clearReleaseData(String sourceId) {
-        log.info("Clearing existing data for release with sourceId: {}", sourceId);
-        releaseRepository.findBySourceId(sourceId)
-                .ifPresent(release -> {
-                    log.info("Clearing tracks, artists, and tags for release: {}", release.getTitle());
-                    release.getTracks().clear();
-                    release.getArtists().clear();
-                    release.getTags().clear();
-                    releaseRepository.save(release);
-                });
-    }
-
-    @Transactional
     public void saveRelease(
             ReleaseMetadata metadata,
             String directoryPath,
@@ -59,6 +66,22 @@ public class ReleaseService {
     ) {
         log.info("Saving release: {} by {} from source {}", metadata.title(), metadata.artist(), metadata.source());
 
+        // Files are read up front so the transaction below never holds a connection while waiting on the disk
+        Map<String, AudioFileSnapshot> snapshots = readFiles(organizedFiles);
+        optimisticRetry.inTransaction("save-release", () -> {
+            persistRelease(metadata, directoryPath, coverPath, organizedFiles, metadataVersion, snapshots);
+            return null;
+        });
+    }
+
+    private void persistRelease(
+            ReleaseMetadata metadata,
+            String directoryPath,
+            String coverPath,
+            List<FileOrganizer.OrganizedFile> organizedFiles,
+            Integer metadataVersion,
+            Map<String, AudioFileSnapshot> snapshots
+    ) {
         Release release = releaseRepository.findBySourceId(metadata.id())
                 .orElseGet(Release::new);
 
@@ -91,95 +114,216 @@ public class ReleaseService {
             }
         }
 
-        Artist artist = findOrCreateArtist(metadata.artist());
+        Artist artist = dictionaryService.artist(metadata.artist());
+        List.copyOf(release.getArtists()).stream()
+                .filter(existing -> !existing.equals(artist))
+                .forEach(release::removeArtist);
         release.addArtist(artist);
 
         if (metadata.label() != null && !metadata.label().isEmpty()) {
-            Label label = findOrCreateLabel(metadata.label());
+            Label label = dictionaryService.label(metadata.label());
             release.setLabel(label);
         }
 
+        Set<Tag> tags = new HashSet<>();
         if (metadata.tags() != null) {
             for (String tagName : metadata.tags()) {
-                Tag tag = findOrCreateTag(tagName);
-                release.addTag(tag);
+                tags.add(dictionaryService.tag(tagName));
             }
         }
+        List.copyOf(release.getTags()).stream()
+                .filter(existing -> !tags.contains(existing))
+                .forEach(release::removeTag);
+        tags.forEach(release::addTag);
 
         if (organizedFiles != null && !organizedFiles.isEmpty()) {
-            List<FileOrganizer.OrganizedFile> sortedFiles = organizedFiles.stream()
-                    .sorted(Comparator.comparingInt(FileOrganizer.OrganizedFile::trackNumber))
-                    .toList();
-
-            for (FileOrganizer.OrganizedFile file : sortedFiles) {
-                Track track = new Track(file.trackTitle(), file.trackNumber());
-                track.setLocalPath(file.newPath());
+            reconcileTracks(release, metadata, organizedFiles, snapshots);
+        }
 
-                Artist trackArtist = resolveTrackArtist(metadata, file);
-                track.addArtist(trackArtist);
+        Release savedRelease = releaseRepository.save(release);
+        log.info("Successfully saved release with ID: {}", savedRelease.getId());
+        List<Track> savedTracks = List.copyOf(savedRelease.getTracks());
+        AfterCommit.run(() -> savedTracks.forEach(harmonicIndex::onTagsChanged));
 
-                extractAndStoreTags(track, file.newPath());
+        analysisScheduler.request(savedRelease.getTracks(), AnalysisScheduler.NEW_RELEASE_PRIORITY);
+    }
 
+    /**
+     * Diffs the release's tracks against the files instead of recreating them: each file is matched
+     * to an existing track by path, then audio fingerprint, then track number, and updated in place.
+     * Unmatched files become new tracks, unmatched tracks are deleted. Kept tracks retain their id
+     * and analysis (re-analysis is only requested if their audio changed).
+     */
+    private void reconcileTracks(Release release, ReleaseMetadata metadata, List<FileOrganizer.OrganizedFile> files,
+                                 Map<String, AudioFileSnapshot> snapshots) {
+        List<Track> unmatched = new ArrayList<>(release.getTracks());
+        int updated = 0;
+        int added = 0;
+
+        List<FileOrganizer.OrganizedFile> sortedFiles = files.stream()
+                .sorted(Comparator.comparingInt(FileOrganizer.OrganizedFile::trackNumber))
+                .toList();
+
+        for (FileOrganizer.OrganizedFile file : sortedFiles) {
+            AudioFileSnapshot snapshot = snapshots.get(file.newPath());
+            String fingerprint = snapshot.fingerprint();
+
+            Track track = takeMatch(unmatched, t -> file.newPath().equals(t.getLocalPath()))
+                    .or(() -> fingerprint == null ? Optional.empty()
+                            : takeMatch(unmatched, t -> fingerprint.equals(t.getAudioFingerprint())))
+                    .or(() -> takeMatch(unmatched, t -> Objects.equals(file.trackNumber(), t.getTrackNumber())))
+                    .orElse(null);
+
+            if (track == null) {
+                track = new Track(file.trackTitle(), file.trackNumber());
                 release.addTrack(track);
+                added++;
+            } else {
+                track.setTitle(file.trackTitle());
+                track.setTrackNumber(file.trackNumber());
+                updated++;
             }
+
+            track.setLocalPath(file.newPath());
+            track.setAudioFingerprint(fingerprint);
+
+            Artist trackArtist = resolveTrackArtist(metadata, file);
+            List.copyOf(track.getArtists()).stream()
+                    .filter(existing -> !existing.equals(trackArtist))
+                    .forEach(track::removeArtist);
+            track.addArtist(trackArtist);
+
+            storeTags(track, snapshot);
         }
 
-        Release savedRelease = releaseRepository.save(release);
-        log.info("Successfully saved release with ID: {}", savedRelease.getId());
+        for (Track removed : unmatched) {
+            log.info("Removing track no longer present in release: {} ({})", removed.getTitle(), removed.getLocalPath());
+            release.removeTrack(removed);
+        }
 
-        triggerAudioAnalysis(savedRelease);
-    }
+        // The in-memory indexes only drop the tracks once the delete has committed
+        List<Long> removedIds = unmatched.stream().map(Track::getId).toList();
+        if (!removedIds.isEmpty()) {
+            AfterCommit.run(() -> removedIds.forEach(trackId -> {
+                harmonicIndex.remove(trackId);
+                similarityIndex.remove(trackId);
+            }));
+        }
 
-    private void extractAndStoreTags(Track track, String filePath) {
-        try {
-            java.nio.file.Path audioFile = java.nio.file.Paths.get(filePath);
-            java.util.Map<String, String> tags = tagExtractor.extractAllTags(audioFile);
+        log.info("Reconciled tracks for release '{}': {} updated, {} added, {} removed",
+                release.getTitle(), updated, added, unmatched.size());
+    }
 
-            if (tags.isEmpty()) {
-                log.debug("No tags extracted from file: {}", filePath);
-                return;
+    private static Optional<Track> takeMatch(List<Track> candidates, Predicate<Track> matches) {
+        for (Iterator<Track> iterator = candidates.iterator(); iterator.hasNext(); ) {
+            Track candidate = iterator.next();
+            if (matches.test(candidate)) {
+                iterator.remove();
+                return Optional.of(candidate);
             }
+        }
+        return Optional.empty();
+    }
 
-            for (java.util.Map.Entry<String, String> entry : tags.entrySet()) {
-                track.setTag(entry.getKey(), entry.getValue());
+    /**
+     * Reprocess metadata rebuilt from a release's .release-metadata.json, with the track list
+     * (numbers, titles, artists) taken from the database.
+     */
+    @Transactional(readOnly = true)
+    public ReleaseMetadata toReprocessMetadata(Long releaseId, ReleaseMetadataFile file) {
+        Release release = releaseRepository.findById(releaseId)
+                .orElseThrow(() -> new IllegalStateException("Release not found: " + releaseId));
+
+        List<TrackMetadata> tracks = release.getTracks().stream()
+                .filter(track -> track.getTrackNumber() != null)
+                .sorted(Comparator.comparingInt(Track::getTrackNumber))
+                .map(track -> new TrackMetadata(
+                        track.getTrackNumber(),
+                        track.getArtists().stream().findFirst().map(Artist::getName).orElse(file.artist()),
+                        track.getTitle()))
+                .toList();
+
+        return new ReleaseMetadata(
+                file.sourceId(),
+                file.masterId(),
+                file.source(),
+                file.artist(),
+                file.title(),
+                0,
+                file.year() != null ? List.of(String.valueOf(file.year())) : List.of(),
+                file.types(),
+                tracks.size(),
+                tracks.size(),
+                0,
+                tracks,
+                null,
+                file.tags(),
+                file.label()
+        );
+    }
+
+    @Transactional
+    public void markMetadataVersion(Long releaseId, int version) {
+        releaseRepository.findById(releaseId).ifPresent(release -> release.setMetadataVersion(version));
+    }
+
+    private Map<String, AudioFileSnapshot> readFiles(List<FileOrganizer.OrganizedFile> files) {
+        Map<String, AudioFileSnapshot> snapshots = new HashMap<>();
+        if (files != null) {
+            for (FileOrganizer.OrganizedFile file : files) {
+                snapshots.computeIfAbsent(file.newPath(), this::readFile);
             }
+        }
+        return snapshots;
+    }
 
-            log.debug("Extracted and stored {} tags for track: {}", tags.size(), track.getTitle());
+    private AudioFileSnapshot readFile(String filePath) {
+        Path audioFile = Paths.get(filePath);
+        String fingerprint = fingerprinter.fingerprint(audioFile);
 
+        BasicFileAttributes attrs = null;
+        try {
+            attrs = Files.readAttributes(audioFile, BasicFileAttributes.class);
+        } catch (IOException e) {
+            log.debug("Could not stat {}: {}", audioFile, e.getMessage());
+        }
+
+        Map<String, String> tags = Map.of();
+        try {
+            tags = tagExtractor.extractAllTags(audioFile);
         } catch (Exception e) {
             log.error("Failed to extract tags from {}: {}", filePath, e.getMessage());
         }
-    }
 
-    private Artist resolveTrackArtist(ReleaseMetadata metadata, FileOrganizer.OrganizedFile file) {
-        String trackArtistName = file.trackArtist() != null && !file.trackArtist().isEmpty()
-                ? file.trackArtist()
-                : metadata.artist();
-        return findOrCreateArtist(trackArtistName);
+        return new AudioFileSnapshot(fingerprint, tags, attrs);
     }
 
-    private Artist findOrCreateArtist(String name) {
-        return artistRepository.findByName(name)
-                .orElseGet(() -> {
-                    Artist newArtist = new Artist(name);
-                    return artistRepository.save(newArtist);
-                });
-    }
+    private void storeTags(Track track, AudioFileSnapshot snapshot) {
+        if (snapshot.attrs() != null) {
+            track.setFileStats(snapshot.attrs().size(), snapshot.attrs().lastModifiedTime().toMillis());
+        }
+
+        Map<String, String> tags = snapshot.tags();
+        if (tags.isEmpty()) {
+            log.debug("No tags extracted from file: {}", track.getLocalPath());
+            return;
+        }
 
-    private Tag findOrCreateTag(String name) {
-        return tagRepository.findByName(name)
-                .orElseGet(() -> {
-                    Tag newTag = new Tag(name);
-                    return tagRepository.save(newTag);
-                });
+        // Drop tags the file no longer has (reprocessed tracks keep their previous tags otherwise)
+        List.copyOf(track.getTagDocument().keySet()).stream()
+                .filter(tagName -> !tags.containsKey(tagName))
+                .forEach(tagName -> tagStore.removeTag(track, tagName));
+        tags.forEach((tagName, tagValue) -> tagStore.setTag(track, tagName, tagValue));
+        track.setTagsDigest(AudioTagExtractor.digest(tags));
+
+        log.debug("Stored {} tags for track: {}", tags.size(), track.getTitle());
     }
 
-    private Label findOrCreateLabel(String name) {
-        return labelRepository.findByName(name)
-                .orElseGet(() -> {
-                    Label newLabel = new Label(name);
-                    return labelRepository.save(newLabel);
-                });
+    private Artist resolveTrackArtist(ReleaseMetadata metadata, FileOrganizer.OrganizedFile file) {
+        String trackArtistName = file.trackArtist() != null && !file.trackArtist().isEmpty()
+                ? file.trackArtist()
+                : metadata.artist();
+        return dictionaryService.artist(trackArtistName);
     }
 
     private ReleaseType mapToReleaseType(String type) {
@@ -202,26 +346,5 @@ public class ReleaseService {
         return ReleaseType.ALBUM;
     }
 
-    private void triggerAudioAnalysis(Release release) {
-        log.info("Triggering audio analysis for {} tracks in release: {}",
-                release.getTracks().size(), release.getTitle());
-
-        for (Track track : release.getTracks()) {
-            try {
-                AnalyzeTrackTaskDto task = new AnalyzeTrackTaskDto(
-                        track.getId(),
-                        track.getLocalPath(),
-                        release.getId(),
-                        release.getTitle(),
-                        track.getTitle()
-                );
-
-                analyzeTrackProducer.sendAnalysisTask(task);
-
-            } catch (Exception ex) {
-                log.error("Failed to send analysis task for track {}: {}",
-                        track.getTitle(), ex.getMessage());
-            }
-        }
-    }
+    private record AudioFileSnapshot(String fingerprint, Map<String, String> tags, BasicFileAttributes attrs) {}
 }
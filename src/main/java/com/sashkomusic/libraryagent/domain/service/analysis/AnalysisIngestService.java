@@ -0,0 +1,209 @@
+package com.sashkomusic.libraryagent.domain.service.analysis;
+
+import com.sashkomusic.libraryagent.domain.entity.Track;
+import com.sashkomusic.libraryagent.domain.model.AnalysisFeatures;
+import com.sashkomusic.libraryagent.domain.repository.TrackAnalysisUpsertRepository;
+import com.sashkomusic.libraryagent.domain.repository.TrackAnalysisUpsertRepository.Row;
+import com.sashkomusic.libraryagent.domain.repository.TrackRepository;
+import com.sashkomusic.libraryagent.domain.service.mixing.HarmonicMixingIndex;
+import com.sashkomusic.libraryagent.domain.service.processFolder.TrackAnalysisJsonReader;
+import com.sashkomusic.libraryagent.domain.service.processFolder.TrackAnalysisJsonReader.ParsedAnalysis;
+import com.sashkomusic.libraryagent.domain.service.similarity.SimilarTrackIndex;
+import com.sashkomusic.libraryagent.messaging.consumer.dto.TrackAnalysisCompleteDto;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Stores a batch of analyzer results: one IN query for the tracks, results parsed in parallel
+ * (inline payload if the message has one, otherwise the JSON file),
+ * one batched upsert for all rows. If the batch write fails, records are retried one by one
+ * so a single bad row doesn't drop the rest.
+ */
+@Service
+@Slf4j
+public class AnalysisIngestService {
+
+    private final TrackRepository trackRepository;
+    private final TrackAnalysisUpsertRepository upsertRepository;
+    private final TrackAnalysisJsonReader jsonReader;
+    private final HarmonicMixingIndex harmonicIndex;
+    private final SimilarTrackIndex similarityIndex;
+    private final AnalysisScheduler analysisScheduler;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService parseExecutor;
+
+    public AnalysisIngestService(TrackRepository trackRepository,
+                                 TrackAnalysisUpsertRepository upsertRepository,
+                                 TrackAnalysisJsonReader jsonReader,
+                                 HarmonicMixingIndex harmonicIndex,
+                                 SimilarTrackIndex similarityIndex,
+                                 AnalysisScheduler analysisScheduler,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${analysis.batch.parse-parallelism:4}") int parseParallelism) {
+        this.trackRepository = trackRepository;
+        this.upsertRepository = upsertRepository;
+        this.jsonReader = jsonReader;
+        this.harmonicIndex = harmonicIndex;
+        this.similarityIndex = similarityIndex;
+        this.analysisScheduler = analysisScheduler;
+        this.transactionTemplate = transactionTemplate;
+        this.parseExecutor = Executors.newFixedThreadPool(Math.max(1, parseParallelism));
+    }
+
+    public void ingest(List<TrackAnalysisCompleteDto> messages) {
+        long startTime = System.currentTimeMillis();
+
+        // Later message for the same track wins
+        Map<Long, TrackAnalysisCompleteDto> latest = new LinkedHashMap<>();
+        for (TrackAnalysisCompleteDto message : messages) {
+            if (message.trackId() != null) {
+                latest.put(message.trackId(), message);
+            }
+        }
+        if (latest.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Track> tracks = trackRepository.findAllById(latest.keySet()).stream()
+                .collect(Collectors.toMap(Track::getId, Function.identity()));
+
+        List<CompletableFuture<Row>> futures = new ArrayList<>();
+        for (TrackAnalysisCompleteDto message : latest.values()) {
+            Track track = tracks.get(message.trackId());
+            if (track == null) {
+                log.warn("Skipping analysis result, track not found: {}", message.trackId());
+                continue;
+            }
+            futures.add(CompletableFuture.supplyAsync(() -> toRow(message, track), parseExecutor));
+        }
+        List<Row> rows = futures.stream().map(CompletableFuture::join).toList();
+
+        List<Row> stored = store(rows);
+        stored.forEach(row -> updateIndexes(row, tracks.get(row.trackId())));
+        analysisScheduler.onCompleted(stored);
+
+        log.info("Stored {} of {} analysis results ({} messages) in {}ms",
+                stored.size(), rows.size(), messages.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private Row toRow(TrackAnalysisCompleteDto message, Track track) {
+        if (!message.success()) {
+            String errorMsg = message.errorMessage() != null ? message.errorMessage() : "Unknown error during analysis";
+            log.warn("Analysis failed for trackId={}: {}", track.getId(), errorMsg);
+            return new Row(track.getId(), null, errorMsg);
+        }
+
+        try {
+            ParsedAnalysis parsed = readInline(message, track);
+            if (parsed == null) {
+                if (message.jsonResultPath() == null) {
+                    return new Row(track.getId(), null, "No analysis features in message");
+                }
+                parsed = jsonReader.readFeatures(message.jsonResultPath(), track);
+            }
+
+            if (!parsed.success() || parsed.errorMessage() != null) {
+                return new Row(track.getId(), null,
+                        parsed.errorMessage() != null ? parsed.errorMessage() : "Unknown error");
+            }
+            return new Row(track.getId(), parsed.values(), null);
+        } catch (Exception e) {
+            log.error("Failed to read analysis result for trackId={} ({}): {}",
+                    track.getId(), message.jsonResultPath(), e.getMessage(), e);
+            return new Row(track.getId(), null, "Failed to read JSON: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return null if the message carries no usable inline payload
+     */
+    private ParsedAnalysis readInline(TrackAnalysisCompleteDto message, Track track) throws IOException {
+        if (message.packedFeatures() != null) {
+            ParsedAnalysis unpacked = jsonReader.unpackFeatures(message.packedFeatures(), message.featuresVersion());
+            if (unpacked != null) {
+                return unpacked;
+            }
+            log.warn("Ignoring packed features for trackId={}: version {}, {} bytes",
+                    track.getId(), message.featuresVersion(), message.packedFeatures().length);
+        }
+        if (message.result() != null && message.result().isObject()) {
+            return jsonReader.readFeatures(message.result(), track);
+        }
+        return null;
+    }
+
+    /**
+     * @return rows that made it to the database
+     */
+    private List<Row> store(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> upsertRepository.upsert(rows));
+            return rows;
+        } catch (Exception e) {
+            log.warn("Batch upsert of {} analysis rows failed, retrying individually: {}", rows.size(), e.getMessage());
+        }
+
+        List<Row> stored = new ArrayList<>();
+        for (Row row : rows) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> upsertRepository.upsert(List.of(row)));
+                stored.add(row);
+            } catch (Exception e) {
+                log.error("Failed to store analysis for trackId={}: {}", row.trackId(), e.getMessage(), e);
+            }
+        }
+        return stored;
+    }
+
+    private void updateIndexes(Row row, Track track) {
+        if (!row.isSuccessful()) {
+            // Failed analysis keeps its previous features in the table, but shouldn't be offered as similar
+            similarityIndex.remove(track.getId());
+            return;
+        }
+
+        double bpm = row.values()[0];
+        harmonicIndex.onAnalysisChanged(track, Double.isNaN(bpm) ? null : BigDecimal.valueOf(bpm));
+
+        float[] features = new float[AnalysisFeatures.COUNT];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = (float) row.values()[i];
+        }
+        similarityIndex.onAnalysisChanged(track.getId(), features);
+    }
+
+    /**
+     * Lets a batch being parsed finish (bounded), then stops the parse threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        parseExecutor.shutdown();
+        try {
+            if (!parseExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                parseExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            parseExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
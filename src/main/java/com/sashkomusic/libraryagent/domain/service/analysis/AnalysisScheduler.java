@@ -0,0 +1,251 @@
+package com.sashkomusic.libraryagent.domain.service.analysis;
+
+import com.sashkomusic.libraryagent.domain.entity.AnalysisRequest;
+import com.sashkomusic.libraryagent.domain.entity.Release;
+import com.sashkomusic.libraryagent.domain.entity.Track;
+import com.sashkomusic.libraryagent.domain.model.AnalysisState;
+import com.sashkomusic.libraryagent.domain.repository.AnalysisRequestRepository;
+import com.sashkomusic.libraryagent.domain.repository.TrackAnalysisUpsertRepository.Row;
+import com.sashkomusic.libraryagent.domain.repository.TrackRepository;
+import com.sashkomusic.libraryagent.messaging.producer.AnalyzeTrackProducer;
+import com.sashkomusic.libraryagent.messaging.producer.dto.AnalyzeTrackTaskDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Owns the audio analysis queue (analysis_requests). Tracks are requested on ingest, unchanged audio
+ * that was already analysed with the current analyzer version is skipped, at most max-in-flight tasks
+ * are outstanding at once, and un-analysed or outdated tracks are backfilled at low priority.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AnalysisScheduler {
+
+    public static final int NEW_RELEASE_PRIORITY = 100;
+    public static final int AUDIO_CHANGED_PRIORITY = 50;
+    public static final int BACKFILL_PRIORITY = 0;
+
+    private final AnalysisRequestRepository requestRepository;
+    private final TrackRepository trackRepository;
+    private final AnalyzeTrackProducer analyzeTrackProducer;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${analysis.version:1.0}")
+    private String analysisVersion;
+
+    @Value("${analysis.scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analysis.scheduler.max-in-flight:8}")
+    private int maxInFlight;
+
+    @Value("${analysis.scheduler.in-flight-timeout:1800000}")
+    private long inFlightTimeoutMillis;
+
+    @Value("${analysis.scheduler.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${analysis.scheduler.backfill.enabled:true}")
+    private boolean backfillEnabled;
+
+    @Value("${analysis.scheduler.backfill.per-tick:20}")
+    private int backfillPerTick;
+
+    /**
+     * Queues tracks for analysis; dispatch happens on the next tick.
+     */
+    @Transactional
+    public void request(Collection<Track> tracks, int priority) {
+        Map<Long, AnalysisRequest> existing = requestRepository.findAllById(
+                        tracks.stream().map(Track::getId).toList()).stream()
+                .collect(Collectors.toMap(AnalysisRequest::getTrackId, Function.identity()));
+
+        int queued = 0;
+        for (Track track : tracks) {
+            String signature = audioSignature(track);
+            AnalysisRequest request = existing.get(track.getId());
+            if (request != null && request.covers(signature, analysisVersion)) {
+                log.debug("Audio unchanged, skipping analysis for track {}", track.getId());
+                continue;
+            }
+            if (request == null) {
+                request = new AnalysisRequest(track.getId());
+            }
+            request.enqueue(priority, signature, analysisVersion);
+            requestRepository.save(request);
+            queued++;
+        }
+
+        log.info("Queued {} of {} tracks for analysis (priority {})", queued, tracks.size(), priority);
+    }
+
+    /**
+     * Results stored by the ingest - closes the matching requests.
+     */
+    @Transactional
+    public void onCompleted(List<Row> rows) {
+        Map<Long, AnalysisRequest> requests = requestRepository.findAllById(
+                        rows.stream().map(Row::trackId).toList()).stream()
+                .collect(Collectors.toMap(AnalysisRequest::getTrackId, Function.identity()));
+
+        for (Row row : rows) {
+            AnalysisRequest request = requests.computeIfAbsent(row.trackId(), trackId -> {
+                AnalysisRequest created = new AnalysisRequest(trackId);
+                created.setRequestedAt(LocalDateTime.now());
+                return created;
+            });
+            request.markCompleted(row.isSuccessful() ? null : row.errorMessage(), analysisVersion);
+        }
+        requestRepository.saveAll(requests.values());
+    }
+
+    /**
+     * Claims the next batch (IN_FLIGHT) and commits before anything is sent, so a task on the topic
+     * always has a committed request behind it; tasks that fail to send go back to PENDING.
+     */
+    @Scheduled(fixedDelayString = "${analysis.scheduler.interval:5000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+
+        List<AnalyzeTrackTaskDto> tasks = transactionTemplate.execute(status -> {
+            expireStale();
+            if (backfillEnabled) {
+                backfill();
+            }
+            return claim();
+        });
+        if (tasks != null && !tasks.isEmpty()) {
+            send(tasks);
+        }
+    }
+
+    private void expireStale() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(inFlightTimeoutMillis));
+        for (AnalysisRequest request : requestRepository.findByStateAndDispatchedAtBefore(AnalysisState.IN_FLIGHT, cutoff)) {
+            if (request.getAttempts() >= maxAttempts) {
+                log.warn("Analysis of track {} timed out {} times, giving up", request.getTrackId(), request.getAttempts());
+                request.markCompleted("Analysis timed out", request.getAnalysisVersion());
+            } else {
+                log.info("Analysis of track {} timed out, re-queueing", request.getTrackId());
+                request.setState(AnalysisState.PENDING);
+            }
+        }
+    }
+
+    /**
+     * Keeps a short pending queue topped up from un-analysed and outdated tracks, so newly ingested
+     * releases never wait behind a long backlog.
+     */
+    private void backfill() {
+        long pending = requestRepository.countByState(AnalysisState.PENDING);
+        if (pending >= backfillPerTick) {
+            return;
+        }
+
+        int limit = (int) (backfillPerTick - pending);
+        int added = requestRepository.enqueueUnanalyzed(analysisVersion, BACKFILL_PRIORITY, limit);
+        if (added < limit) {
+            added += requestRepository.requeueOutdated(analysisVersion, BACKFILL_PRIORITY, limit - added);
+        }
+        if (added > 0) {
+            log.info("Analysis backfill queued {} tracks", added);
+        }
+    }
+
+    private List<AnalyzeTrackTaskDto> claim() {
+        long inFlight = requestRepository.countByState(AnalysisState.IN_FLIGHT);
+        int slots = (int) (maxInFlight - inFlight);
+        if (slots <= 0) {
+            return List.of();
+        }
+
+        List<AnalysisRequest> batch = requestRepository.findByStateOrderByPriorityDescRequestedAtAsc(
+                AnalysisState.PENDING, PageRequest.of(0, slots));
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Track> tracks = trackRepository.findAllById(
+                        batch.stream().map(AnalysisRequest::getTrackId).toList()).stream()
+                .collect(Collectors.toMap(Track::getId, Function.identity()));
+
+        List<AnalyzeTrackTaskDto> tasks = new ArrayList<>();
+        for (AnalysisRequest request : batch) {
+            Track track = tracks.get(request.getTrackId());
+            if (track == null || track.getLocalPath() == null) {
+                request.markCompleted("Track has no audio file", analysisVersion);
+                continue;
+            }
+
+            Release release = track.getRelease();
+            tasks.add(new AnalyzeTrackTaskDto(
+                    track.getId(),
+                    track.getLocalPath(),
+                    release.getId(),
+                    release.getTitle(),
+                    track.getTitle()
+            ));
+            request.markInFlight();
+        }
+        return tasks;
+    }
+
+    private void send(List<AnalyzeTrackTaskDto> tasks) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(tasks.size());
+        for (AnalyzeTrackTaskDto task : tasks) {
+            try {
+                sends.add(analyzeTrackProducer.sendAnalysisTask(task));
+            } catch (Exception ex) {
+                sends.add(CompletableFuture.failedFuture(ex));
+            }
+        }
+
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                sends.get(i).join();
+            } catch (Exception ex) {
+                log.error("Failed to send analysis task for track {}: {}", tasks.get(i).trackTitle(), ex.getMessage());
+                failed.add(tasks.get(i).trackId());
+            }
+        }
+        if (!failed.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> requestRepository.findAllById(failed).stream()
+                    .filter(request -> request.getState() == AnalysisState.IN_FLIGHT)
+                    .forEach(AnalysisRequest::markDispatchFailed));
+        }
+    }
+
+    /**
+     * Identity of the audio the analysis was made for - the payload fingerprint when the format
+     * supports it, file size and mtime otherwise.
+     */
+    private static String audioSignature(Track track) {
+        if (track.getAudioFingerprint() != null) {
+            return track.getAudioFingerprint();
+        }
+        if (track.getFileSize() == null || track.getFileModifiedMillis() == null) {
+            return null;
+        }
+        return track.getFileSize() + ":" + track.getFileModifiedMillis();
+    }
+}
@@ -0,0 +1,260 @@
+package com.sashkomusic.libraryagent.domain.service.mixing;
+
+import com.sashkomusic.libraryagent.domain.entity.Track;
+import com.sashkomusic.libraryagent.domain.model.CamelotKey;
+import com.sashkomusic.libraryagent.domain.repository.TrackRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory BPM x Camelot key index for harmonic mixing.
+ * One BPM-sorted primitive array per key (24 buckets); a neighbour query is a handful of
+ * binary searches over the compatible keys, at the original tempo and at half/double time.
+ * Buckets are immutable snapshots swapped on update, so reads never lock.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class HarmonicMixingIndex {
+
+    private static final int KEY_COUNT = 24;
+
+    private final TrackRepository trackRepository;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Bucket> buckets = emptyBuckets();
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        CompletableFuture.runAsync(this::rebuild);
+    }
+
+    public synchronized void rebuild() {
+        long startTime = System.currentTimeMillis();
+
+        entries.clear();
+        for (TrackRepository.HarmonicView view : trackRepository.findHarmonicViews()) {
+            entries.put(view.getId(), new Entry(
+                    view.getCamelotKey() != null ? view.getCamelotKey().shortValue() : null,
+                    toFloat(view.getTagBpm()),
+                    toFloat(view.getAnalysisBpm())
+            ));
+        }
+
+        Map<Integer, List<Map.Entry<Long, Entry>>> byKey = new HashMap<>();
+        for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().isIndexable()) {
+                byKey.computeIfAbsent((int) entry.getValue().camelotKey(), k -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        for (int key = 0; key < KEY_COUNT; key++) {
+            List<Map.Entry<Long, Entry>> keyEntries = byKey.getOrDefault(key, new ArrayList<>());
+            keyEntries.sort(Comparator.comparingDouble(e -> e.getValue().bpm()));
+
+            float[] bpms = new float[keyEntries.size()];
+            long[] ids = new long[keyEntries.size()];
+            for (int i = 0; i < keyEntries.size(); i++) {
+                bpms[i] = keyEntries.get(i).getValue().bpm();
+                ids[i] = keyEntries.get(i).getKey();
+            }
+            buckets.set(key, new Bucket(bpms, ids));
+        }
+
+        ready = true;
+        log.info("Harmonic mixing index built in {}ms: {} tracks",
+                System.currentTimeMillis() - startTime, indexedCount());
+    }
+
+    /**
+     * Key or tag BPM changed (ingest, sync).
+     */
+    public void onTagsChanged(Track track) {
+        if (track.getId() == null) {
+            return;
+        }
+        Entry current = entries.get(track.getId());
+        update(track.getId(), new Entry(
+                track.getCamelotKey(),
+                toFloat(track.getBpm()),
+                current != null ? current.analysisBpm() : Float.NaN
+        ));
+    }
+
+    /**
+     * Analysed BPM arrived - takes precedence over the tag BPM.
+     */
+    public void onAnalysisChanged(Track track, BigDecimal analysisBpm) {
+        if (track.getId() == null) {
+            return;
+        }
+        update(track.getId(), new Entry(track.getCamelotKey(), toFloat(track.getBpm()), toFloat(analysisBpm)));
+    }
+
+    public synchronized void remove(Long trackId) {
+        Entry previous = entries.remove(trackId);
+        if (previous != null && previous.isIndexable()) {
+            buckets.set(previous.camelotKey(), buckets.get(previous.camelotKey()).without(trackId, previous.bpm()));
+        }
+    }
+
+    private synchronized void update(Long trackId, Entry entry) {
+        Entry previous = entries.put(trackId, entry);
+        if (previous != null && previous.isIndexable()) {
+            buckets.set(previous.camelotKey(), buckets.get(previous.camelotKey()).without(trackId, previous.bpm()));
+        }
+        if (entry.isIndexable()) {
+            buckets.set(entry.camelotKey(), buckets.get(entry.camelotKey()).with(trackId, entry.bpm()));
+        }
+    }
+
+    /**
+     * Tracks within ±tolerancePercent BPM (optionally at half/double time) in a compatible key,
+     * closest tempo first. At large tolerances the half/double windows overlap - a track found in several
+     * of them is listed once, under the tempo it is closest to.
+     */
+    public List<Neighbour> findNeighbours(Long trackId, double tolerancePercent, boolean halfDoubleTime, int limit) {
+        Entry source = entries.get(trackId);
+        if (source == null || !source.isIndexable() || limit <= 0) {
+            return List.of();
+        }
+
+        float bpm = source.bpm();
+        double tolerance = tolerancePercent / 100.0;
+        double[] tempos = halfDoubleTime ? new double[]{bpm, bpm / 2.0, bpm * 2.0} : new double[]{bpm};
+
+        Map<Long, Neighbour> closest = new HashMap<>();
+        for (CamelotKey key : CamelotKey.fromCode(source.camelotKey()).compatibleKeys()) {
+            Bucket bucket = buckets.get(key.toCode());
+
+            for (double tempo : tempos) {
+                double min = tempo * (1 - tolerance);
+                double max = tempo * (1 + tolerance);
+
+                for (int i = bucket.lowerBound(min); i < bucket.bpms.length && bucket.bpms[i] <= max; i++) {
+                    if (bucket.ids[i] == trackId) {
+                        continue;
+                    }
+                    double diffPercent = (bucket.bpms[i] - tempo) / tempo * 100.0;
+                    closest.merge(bucket.ids[i], new Neighbour(bucket.ids[i], bucket.bpms[i], key.toString(),
+                                    diffPercent, tempoRelation(tempo, bpm)),
+                            (a, b) -> Math.abs(b.bpmDiffPercent()) < Math.abs(a.bpmDiffPercent()) ? b : a);
+                }
+            }
+        }
+
+        List<Neighbour> result = new ArrayList<>(closest.values());
+        result.sort(Comparator.comparingDouble(n -> Math.abs(n.bpmDiffPercent())));
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int indexedCount() {
+        int count = 0;
+        for (int key = 0; key < KEY_COUNT; key++) {
+            count += buckets.get(key).ids.length;
+        }
+        return count;
+    }
+
+    private static String tempoRelation(double tempo, float bpm) {
+        if (tempo < bpm) {
+            return "HALF";
+        }
+        return tempo > bpm ? "DOUBLE" : "SAME";
+    }
+
+    private static float toFloat(Number value) {
+        return value != null ? value.floatValue() : Float.NaN;
+    }
+
+    private static AtomicReferenceArray<Bucket> emptyBuckets() {
+        AtomicReferenceArray<Bucket> empty = new AtomicReferenceArray<>(KEY_COUNT);
+        for (int key = 0; key < KEY_COUNT; key++) {
+            empty.set(key, new Bucket(new float[0], new long[0]));
+        }
+        return empty;
+    }
+
+    public record Neighbour(
+            long trackId,
+            float bpm,
+            String camelotKey,
+            double bpmDiffPercent,
+            String tempoRelation
+    ) {}
+
+    private record Entry(Short camelotKey, float tagBpm, float analysisBpm) {
+
+        float bpm() {
+            return !Float.isNaN(analysisBpm) ? analysisBpm : tagBpm;
+        }
+
+        boolean isIndexable() {
+            return camelotKey != null && camelotKey >= 0 && camelotKey < KEY_COUNT
+                    && !Float.isNaN(bpm()) && bpm() > 0;
+        }
+    }
+
+    private record Bucket(float[] bpms, long[] ids) {
+
+        int lowerBound(double bpm) {
+            int low = 0;
+            int high = bpms.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (bpms[mid] < bpm) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        Bucket with(long id, float bpm) {
+            int position = lowerBound(bpm);
+            float[] newBpms = new float[bpms.length + 1];
+            long[] newIds = new long[ids.length + 1];
+            System.arraycopy(bpms, 0, newBpms, 0, position);
+            System.arraycopy(ids, 0, newIds, 0, position);
+            newBpms[position] = bpm;
+            newIds[position] = id;
+            System.arraycopy(bpms, position, newBpms, position + 1, bpms.length - position);
+            System.arraycopy(ids, position, newIds, position + 1, ids.length - position);
+            return new Bucket(newBpms, newIds);
+        }
+
+        Bucket without(long id, float bpm) {
+            for (int i = lowerBound(bpm); i < bpms.length && bpms[i] <= bpm; i++) {
+                if (ids[i] == id) {
+                    float[] newBpms = new float[bpms.length - 1];
+                    long[] newIds = new long[ids.length - 1];
+                    System.arraycopy(bpms, 0, newBpms, 0, i);
+                    System.arraycopy(ids, 0, newIds, 0, i);
+                    System.arraycopy(bpms, i + 1, newBpms, i, bpms.length - i - 1);
+                    System.arraycopy(ids, i + 1, newIds, i, ids.length - i - 1);
+                    return new Bucket(newBpms, newIds);
+                }
+            }
+            return this;
+        }
+    }
+}
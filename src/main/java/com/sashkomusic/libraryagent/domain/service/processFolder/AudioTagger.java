@@ -8,6 +8,7 @@ import org.jaudiotagger.audio.AudioFile;
 import org.jaudiotagger.audio.AudioFileIO;
 import org.jaudiotagger.tag.FieldKey;
 import org.jaudiotagger.tag.Tag;
+import org.jaudiotagger.tag.TagField;
 import org.jaudiotagger.tag.flac.FlacTag;
 import org.jaudiotagger.tag.id3.AbstractID3v2Tag;
 import org.jaudiotagger.tag.id3.ID3v24Frames;
@@ -20,17 +21,33 @@ import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Slf4j
 @Service
 public class AudioTagger {
 
-    public void tagFile(Path audioFile, ReleaseMetadata metadata, TrackMatch match, byte[] coverArt) {
+    /**
+     * Applies the release/track tags to the file. The resulting tag state is compared with the
+     * current one (field values and embedded artwork bytes) and the file is only rewritten if they differ.
+     *
+     * @return true if the file was written, false if its tags already matched
+     */
+    public boolean tagFile(Path audioFile, ReleaseMetadata metadata, TrackMatch match, byte[] coverArt) {
         try {
             log.info("Starting tag operation for: {}", audioFile.getFileName());
 
             AudioFile f = AudioFileIO.read(audioFile.toFile());
             Tag tag = f.getTagOrCreateAndSetDefault();
+            Map<String, List<String>> currentState = snapshot(tag);
 
             String existingKey = tag.getFirst(FieldKey.KEY);
             String existingBpm = tag.getFirst(FieldKey.BPM);
@@ -110,9 +127,15 @@ public class AudioTagger {
                 log.debug("Restored BPM: {}", existingBpm);
             }
 
+            if (snapshot(tag).equals(currentState)) {
+                log.info("Tags already up to date, skipping write: {} - {}", match.trackNumber(), match.trackTitle());
+                return false;
+            }
+
             f.commit();
 
             log.info("Successfully tagged and saved: {} - {}", match.trackNumber(), match.trackTitle());
+            return true;
 
         } catch (Exception ex) {
             log.error("Error tagging file {}: {}", audioFile.getFileName(), ex.getMessage(), ex);
@@ -120,6 +143,29 @@ public class AudioTagger {
         }
     }
 
+    /**
+     * Field id -> sorted content hashes. Raw content covers text values, TXXX descriptions and
+     * artwork bytes alike; sorting makes it insensitive to frame order.
+     */
+    private Map<String, List<String>> snapshot(Tag tag) throws NoSuchAlgorithmException {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        Map<String, List<String>> state = new TreeMap<>();
+
+        for (Iterator<TagField> fields = tag.getFields(); fields.hasNext(); ) {
+            TagField field = fields.next();
+            String contentHash;
+            try {
+                contentHash = HexFormat.of().formatHex(sha256.digest(field.getRawContent()));
+            } catch (Exception e) {
+                contentHash = String.valueOf(field);
+            }
+            state.computeIfAbsent(field.getId(), id -> new ArrayList<>()).add(contentHash);
+        }
+
+        state.values().forEach(Collections::sort);
+        return state;
+    }
+
     public static class TaggingException extends RuntimeException {
         public TaggingException(String message, Throwable cause) {
             super(message, cause);
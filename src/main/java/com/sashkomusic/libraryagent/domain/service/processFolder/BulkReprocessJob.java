@@ -0,0 +1,311 @@
+package com.sashkomusic.libraryagent.domain.service.processFolder;
+
+import com.sashkomusic.libraryagent.domain.entity.AgentState;
+import com.sashkomusic.libraryagent.domain.entity.Release;
+import com.sashkomusic.libraryagent.domain.model.ReleaseMetadata;
+import com.sashkomusic.libraryagent.domain.model.ReleaseMetadataFile;
+import com.sashkomusic.libraryagent.domain.model.ReprocessOptions;
+import com.sashkomusic.libraryagent.domain.repository.AgentStateRepository;
+import com.sashkomusic.libraryagent.domain.repository.ReleaseRepository;
+import com.sashkomusic.libraryagent.domain.service.ReleaseService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Library-wide reprocess of releases whose metadata_version is below the target.
+ * Releases are walked in id order (keyset pages) and reprocessed in parallel (reprocess takes the directory lock),
+ * paced to max-per-minute. The cursor is persisted in agent_state after every page, so a restart
+ * resumes where the job stopped. Shutdown lets releases already being reprocessed finish (an interrupted
+ * tag write could leave a file half-rewritten) and abandons queued ones - the cursor never moves past those.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BulkReprocessJob {
+
+    static final String STATE_KEY = "bulk-reprocess.state";
+
+    private final ReleaseRepository releaseRepository;
+    private final AgentStateRepository agentStateRepository;
+    private final ReleaseService releaseService;
+    private final ReprocessingService reprocessingService;
+    private final ReleaseMetadataWriter metadataWriter;
+
+    @Value("${processing.version:1}")
+    private int processingVersion;
+
+    @Value("${bulk-reprocess.parallelism:2}")
+    private int parallelism;
+
+    @Value("${bulk-reprocess.page-size:50}")
+    private int pageSize;
+
+    @Value("${bulk-reprocess.max-per-minute:30}")
+    private int maxPerMinute;
+
+    @Value("${bulk-reprocess.resume-on-startup:true}")
+    private boolean resumeOnStartup;
+
+    @Value("${bulk-reprocess.shutdown-timeout:60000}")
+    private long shutdownTimeoutMillis;
+
+    private final AtomicInteger reprocessed = new AtomicInteger();
+    private final AtomicInteger upToDate = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private volatile boolean running;
+    private volatile boolean cancelled;
+    private volatile boolean shuttingDown;
+    private volatile int targetVersion;
+    private volatile boolean skipRetag;
+    private volatile long total;
+    private volatile long cursor;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private long nextStartNanos;
+    private ExecutorService workers;
+    private CompletableFuture<Void> runner;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!resumeOnStartup) {
+            return;
+        }
+        agentStateRepository.findById(STATE_KEY)
+                .map(AgentState::getValue)
+                .map(JobState::parse)
+                .ifPresent(state -> {
+                    log.info("Resuming bulk reprocess to version {} after release {}", state.targetVersion(), state.cursor());
+                    launch(state);
+                });
+    }
+
+    /**
+     * @return false if a job is already running
+     */
+    public synchronized boolean start(Integer target, boolean skipRetag) {
+        if (running) {
+            return false;
+        }
+        launch(new JobState(target != null ? target : processingVersion, 0L, skipRetag));
+        return true;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public Progress getProgress() {
+        return new Progress(running, targetVersion, total, reprocessed.get(), upToDate.get(), failed.get(),
+                cursor, startedAt, finishedAt);
+    }
+
+    private synchronized void launch(JobState state) {
+        running = true;
+        cancelled = false;
+        targetVersion = state.targetVersion();
+        skipRetag = state.skipRetag();
+        cursor = state.cursor();
+        reprocessed.set(0);
+        upToDate.set(0);
+        failed.set(0);
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        total = releaseRepository.countOutdated(targetVersion);
+        workers = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        saveState();
+
+        runner = CompletableFuture.runAsync(this::run);
+    }
+
+    private void run() {
+        log.info("Bulk reprocess to version {} started: {} releases below target", targetVersion, total);
+        try {
+            while (!cancelled) {
+                List<Release> page = releaseRepository.findOutdated(targetVersion, cursor, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+                for (Release release : page) {
+                    ReleaseRef ref = new ReleaseRef(release.getId(), release.getDirectoryPath());
+                    futures.add(submit(ref));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+                // Failed releases stay below the target, the cursor keeps the job from looping on them.
+                // It only moves over releases that ran - ones abandoned by cancel/shutdown are picked up on resume.
+                for (int i = 0; i < page.size() && futures.get(i).join(); i++) {
+                    cursor = page.get(i).getId();
+                }
+                saveState();
+                log.info("Bulk reprocess progress: {}", getProgress());
+            }
+
+            // Shutdown keeps the cursor so the job resumes on the next start
+            if (!shuttingDown) {
+                agentStateRepository.deleteById(STATE_KEY);
+            }
+        } catch (Exception e) {
+            log.error("Bulk reprocess failed after release {}: {}", cursor, e.getMessage(), e);
+        } finally {
+            workers.shutdown();
+            finishedAt = LocalDateTime.now();
+            running = false;
+            log.info("Bulk reprocess {}: {}", cancelled ? "cancelled" : "finished", getProgress());
+        }
+    }
+
+    private CompletableFuture<Boolean> submit(ReleaseRef release) {
+        try {
+            return CompletableFuture.supplyAsync(() -> processRelease(release), workers);
+        } catch (RejectedExecutionException e) {
+            // Workers already shut down
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * @return false if the release was abandoned without being looked at (job cancelled)
+     */
+    private boolean processRelease(ReleaseRef release) {
+        if (cancelled) {
+            return false;
+        }
+        if (release.directoryPath() == null) {
+            failed.incrementAndGet();
+            return true;
+        }
+
+        try {
+            Optional<ReleaseMetadataFile> file = metadataWriter.readMetadata(release.directoryPath());
+            if (file.isEmpty()) {
+                log.warn("No metadata file in {}, skipping", release.directoryPath());
+                failed.incrementAndGet();
+                return true;
+            }
+
+            // Folder already migrated (e.g. by a single reprocess), only the DB lags behind
+            if (file.get().metadataVersion() >= targetVersion) {
+                releaseService.markMetadataVersion(release.id(), file.get().metadataVersion());
+                upToDate.incrementAndGet();
+                return true;
+            }
+
+            pace();
+            if (cancelled) {
+                return false;
+            }
+            ReleaseMetadata metadata = releaseService.toReprocessMetadata(release.id(), file.get());
+            ReprocessingService.ReprocessResult result = reprocessingService.reprocess(
+                    release.directoryPath(), metadata, targetVersion, new ReprocessOptions(skipRetag, false));
+
+            if (result.success()) {
+                reprocessed.incrementAndGet();
+            } else {
+                log.warn("Bulk reprocess of {} failed: {}", release.directoryPath(), result.message());
+                failed.incrementAndGet();
+            }
+        } catch (Exception e) {
+            log.error("Bulk reprocess of {} failed: {}", release.directoryPath(), e.getMessage(), e);
+            failed.incrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Spaces release starts evenly to stay under max-per-minute.
+     */
+    private void pace() throws InterruptedException {
+        if (maxPerMinute <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextStartNanos);
+            nextStartNanos = slot + 60_000_000_000L / maxPerMinute;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+
+    private void saveState() {
+        AgentState state = agentStateRepository.findById(STATE_KEY).orElseGet(() -> new AgentState(STATE_KEY, null));
+        state.setValue(new JobState(targetVersion, cursor, skipRetag).format());
+        state.setUpdatedAt(LocalDateTime.now());
+        agentStateRepository.save(state);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        cancelled = true;
+        if (workers == null) {
+            return;
+        }
+
+        workers.shutdown();
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMillis;
+        try {
+            if (!workers.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("Bulk reprocess workers still busy after {}ms, leaving them", shutdownTimeoutMillis);
+                return;
+            }
+            // Let the run loop persist the cursor for the last page
+            runner.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException | ExecutionException e) {
+            log.warn("Bulk reprocess did not save its cursor on shutdown: {}", e.getMessage());
+        }
+    }
+
+    private record ReleaseRef(Long id, String directoryPath) {}
+
+    private record JobState(int targetVersion, long cursor, boolean skipRetag) {
+
+        String format() {
+            return targetVersion + ":" + cursor + ":" + skipRetag;
+        }
+
+        static JobState parse(String value) {
+            String[] parts = value.split(":");
+            return new JobState(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Boolean.parseBoolean(parts[2]));
+        }
+    }
+
+    public record Progress(
+            boolean running,
+            int targetVersion,
+            long total,
+            int reprocessed,
+            int upToDate,
+            int failed,
+            long lastReleaseId,
+            LocalDateTime startedAt,
+            LocalDateTime finishedAt
+    ) {}
+}
@@ -29,17 +29,7 @@ public class FileOrganizer {
             String libraryRootPath
     ) {
         try {
-            // Determine folder structure
-            String artistFolder = sanitizeFolderName(metadata.artist());
-            String format = detectAudioFormat(processedFiles);
-            Integer year = extractYear(metadata);
-            String albumFolder = buildAlbumFolderName(metadata.title(), year, format);
-
-            // Create target directory path
-            Path libraryRoot = Paths.get(libraryRootPath);
-            Path targetDir = libraryRoot
-                    .resolve(artistFolder)
-                    .resolve(albumFolder);
+            Path targetDir = targetDirectory(metadata, processedFiles, libraryRootPath);
 
             handleExistingTargetDirectory(targetDir);
 
@@ -90,6 +80,20 @@ public class FileOrganizer {
         }
     }
 
+    /**
+     * Library folder the release will be organized into: root/artist/album (year) [format].
+     */
+    public Path targetDirectory(ReleaseMetadata metadata, List<ProcessedFile> processedFiles, String libraryRootPath) {
+        String artistFolder = sanitizeFolderName(metadata.artist());
+        String format = detectAudioFormat(processedFiles);
+        Integer year = extractYear(metadata);
+        String albumFolder = buildAlbumFolderName(metadata.title(), year, format);
+
+        return Paths.get(libraryRootPath)
+                .resolve(artistFolder)
+                .resolve(albumFolder);
+    }
+
     private void handleExistingTargetDirectory(Path targetDir) throws IOException {
         if (Files.exists(targetDir) && Files.isDirectory(targetDir)) {
             try (Stream<Path> entries = Files.list(targetDir)) {
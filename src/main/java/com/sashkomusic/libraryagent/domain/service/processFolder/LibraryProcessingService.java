@@ -3,6 +3,8 @@ package com.sashkomusic.libraryagent.domain.service.processFolder;
 import com.sashkomusic.libraryagent.config.LibraryConfig;
 import com.sashkomusic.libraryagent.domain.model.*;
 import com.sashkomusic.libraryagent.domain.service.ReleaseService;
+import com.sashkomusic.libraryagent.domain.service.sync.HotDirectoryRegistry;
+import com.sashkomusic.libraryagent.domain.service.utils.PathLockManager;
 import com.sashkomusic.libraryagent.messaging.consumer.dto.ProcessLibraryTaskDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -33,6 +35,8 @@ public class LibraryProcessingService {
     private final FileOrganizer fileOrganizer;
     private final LibraryConfig libraryConfig;
     private final ReleaseMetadataWriter metadataWriter;
+    private final HotDirectoryRegistry hotDirectories;
+    private final PathLockManager pathLocks;
 
     public ProcessingResult processLibrary(ProcessLibraryTaskDto task) {
         log.info("Starting library processing for chatId={}, directory={}",
@@ -68,8 +72,16 @@ public class LibraryProcessingService {
             return ProcessingResult.failure("No files were successfully processed", errors);
         }
 
-        OrganizationContext orgContext = organizeIntoLibrary(processedFiles, metadata, task, coverArt, errors);
-        saveToDatabase(metadata, orgContext.directoryPath, orgContext.coverPath, orgContext.organizedFiles, errors);
+        // Library folder is locked against reprocess/sync while files land in it and the release is saved
+        String releaseDirectory = libraryConfig.getOrganization().isEnabled()
+                ? fileOrganizer.targetDirectory(metadata, processedFiles, libraryConfig.getRootPath()).toString()
+                : task.directoryPath();
+        OrganizationContext orgContext = pathLocks.withDirectoryLock(releaseDirectory, () -> {
+            OrganizationContext organized = organizeIntoLibrary(processedFiles, metadata, task, coverArt, errors);
+            saveToDatabase(metadata, organized.directoryPath, organized.coverPath, organized.organizedFiles, errors);
+            return organized;
+        });
+        hotDirectories.promote(Paths.get(orgContext.directoryPath));
 
         log.info("Library processing completed successfully: {} files processed", processedFiles.size());
         return ProcessingResult.success(orgContext.directoryPath, processedFiles, errors);
@@ -1,5 +1,6 @@
 package com.sashkomusic.libraryagent.domain.service.processFolder;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -12,6 +13,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.Optional;
 
 @Service
 @Slf4j
@@ -26,6 +28,21 @@ public class ReleaseMetadataWriter {
         this.objectMapper.registerModule(new JavaTimeModule());
         this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT); // Pretty print
         this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    public Optional<ReleaseMetadataFile> readMetadata(String directoryPath) {
+        Path metadataFile = Path.of(directoryPath).resolve(METADATA_FILENAME);
+        if (!Files.exists(metadataFile)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(objectMapper.readValue(metadataFile.toFile(), ReleaseMetadataFile.class));
+        } catch (IOException e) {
+            log.warn("Failed to read metadata file {}: {}", metadataFile, e.getMessage());
+            return Optional.empty();
+        }
     }
 
     public void writeMetadata(String directoryPath, ReleaseMetadata metadata, int version) {
@@ -4,10 +4,10 @@ import com.sashkomusic.libraryagent.domain.model.ReleaseMetadata;
 import com.sashkomusic.libraryagent.domain.model.ReprocessOptions;
 import com.sashkomusic.libraryagent.domain.model.TrackMatch;
 import com.sashkomusic.libraryagent.domain.service.ReleaseService;
+import com.sashkomusic.libraryagent.domain.service.utils.PathLockManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -27,11 +27,20 @@ public class ReprocessingService {
     private final CoverArtService coverArtService;
     private final ReleaseMetadataWriter metadataWriter;
     private final ReleaseService releaseService;
+    private final PathLockManager pathLocks;
 
-    @Transactional
+    /**
+     * Not transactional: retagging is pure file I/O, and the DB update at the end runs in its own
+     * short transaction (ReleaseService.saveRelease), so no connection is held while the disk works.
+     */
     public ReprocessResult reprocess(String directoryPath, ReleaseMetadata metadata, int newVersion,
                                       ReprocessOptions options) {
-        
+        return pathLocks.withDirectoryLock(directoryPath,
+                () -> reprocessDirectory(directoryPath, metadata, newVersion, options));
+    }
+
+    private ReprocessResult reprocessDirectory(String directoryPath, ReleaseMetadata metadata, int newVersion,
+                                               ReprocessOptions options) {
         log.info("Starting reprocessing for: {} (options={})", directoryPath, options);
         log.info("Metadata: {} - {} (version {})", metadata.artist(), metadata.title(), newVersion);
 
@@ -54,6 +63,8 @@ public class ReprocessingService {
 
             int successCount = 0;
             int errorCount = 0;
+            int writtenCount = 0;
+            int skippedCount = 0;
 
             if (options.skipRetag()) {
                 log.info("Skipping audio file re-tagging (--skip-retag flag set)");
@@ -77,7 +88,11 @@ public class ReprocessingService {
                         log.info("Tagging file {} with: trackNumber={}, title='{}', artist='{}'",
                                 filePath.getFileName(), match.trackNumber(), match.trackTitle(), match.artist());
 
-                        audioTagger.tagFile(filePath, metadata, match, coverArt);
+                        if (audioTagger.tagFile(filePath, metadata, match, coverArt)) {
+                            writtenCount++;
+                        } else {
+                            skippedCount++;
+                        }
                         successCount++;
                         log.debug("Successfully retagged: {}", filePath.getFileName());
 
@@ -100,7 +115,7 @@ public class ReprocessingService {
             }
 
             try {
-                recreateReleaseInDatabase(directoryPath, metadata, audioFiles, newVersion);
+                updateReleaseInDatabase(directoryPath, metadata, audioFiles, newVersion);
                 log.info("Updated database with new version");
             } catch (Exception ex) {
                 log.error("Failed to update database: {}", ex.getMessage());
@@ -108,10 +123,11 @@ public class ReprocessingService {
 
             String message = options.skipRetag()
                     ? String.format("Validated %d files and updated metadata (v%d)", audioFiles.size(), newVersion)
-                    : String.format("Successfully retagged %d/%d files", successCount, audioFiles.size());
+                    : String.format("Successfully retagged %d/%d files (%d written, %d already up to date)",
+                            successCount, audioFiles.size(), writtenCount, skippedCount);
             log.info("Reprocessing completed: {}", message);
 
-            return ReprocessResult.success(message, successCount, errorCount);
+            return ReprocessResult.success(message, successCount, errorCount, writtenCount, skippedCount);
 
         } catch (Exception ex) {
             log.error("Failed to reprocess {}: {}", directoryPath, ex.getMessage(), ex);
@@ -150,10 +166,10 @@ public class ReprocessingService {
         return !filename.startsWith("._");
     }
 
-    private void recreateReleaseInDatabase(String directoryPath, ReleaseMetadata metadata,
+    private void updateReleaseInDatabase(String directoryPath, ReleaseMetadata metadata,
                                            List<Path> audioFiles, int newVersion) {
         try {
-            log.info("Recreating release in database: {} - {}", metadata.artist(), metadata.title());
+            log.info("Updating release in database: {} - {}", metadata.artist(), metadata.title());
 
             List<Path> sortedFiles = new ArrayList<>(audioFiles);
             sortedFiles.sort(Comparator.comparing(a -> a.getFileName().toString()));
@@ -186,14 +202,13 @@ public class ReprocessingService {
             Path coverFile = Paths.get(directoryPath).resolve("cover.jpg");
             String coverPath = Files.exists(coverFile) ? coverFile.toString() : null;
 
-            releaseService.clearReleaseData(metadata.id());
             releaseService.saveRelease(metadata, directoryPath, coverPath, organizedFiles, newVersion);
 
-            log.info("Successfully recreated release in database: {} tracks, sourceId={}",
+            log.info("Successfully updated release in database: {} tracks, sourceId={}",
                     organizedFiles.size(), metadata.id());
 
         } catch (Exception ex) {
-            log.error("Failed to recreate release in database for {}: {}",
+            log.error("Failed to update release in database for {}: {}",
                     directoryPath, ex.getMessage(), ex);
         }
     }
@@ -202,14 +217,16 @@ public class ReprocessingService {
             boolean success,
             String message,
             int filesProcessed,
-            int errors
+            int errors,
+            int filesWritten,
+            int filesSkipped
     ) {
-        public static ReprocessResult success(String message, int processed, int errors) {
-            return new ReprocessResult(true, message, processed, errors);
+        public static ReprocessResult success(String message, int processed, int errors, int written, int skipped) {
+            return new ReprocessResult(true, message, processed, errors, written, skipped);
         }
 
         public static ReprocessResult failure(String message) {
-            return new ReprocessResult(false, message, 0, 0);
+            return new ReprocessResult(false, message, 0, 0, 0, 0);
         }
     }
 }
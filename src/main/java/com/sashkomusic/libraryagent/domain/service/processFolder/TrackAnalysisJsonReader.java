@@ -1,25 +1,36 @@
 package com.sashkomusic.libraryagent.domain.service.processFolder;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sashkomusic.libraryagent.domain.entity.Track;
 import com.sashkomusic.libraryagent.domain.entity.TrackAnalysis;
+import com.sashkomusic.libraryagent.domain.model.AnalysisFeatures;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class TrackAnalysisJsonReader {
 
+    // group -> feature name -> index in the AnalysisFeatures layout
+    private static final Map<String, Map<String, Integer>> FEATURE_PATHS = featurePaths();
+
     private final ObjectMapper objectMapper;
 
+    public record ParsedAnalysis(boolean success, String errorMessage, double[] values) {}
+
     public TrackAnalysis readAnalysisFromJson(String jsonFilePath, Track track) throws IOException {
         log.info("Reading analysis JSON from: {} (original: {})", jsonFilePath, jsonFilePath);
 
@@ -28,8 +39,198 @@ public class TrackAnalysisJsonReader {
             throw new IOException("Analysis JSON file not found: " + jsonFilePath);
         }
 
-        JsonNode root = objectMapper.readTree(jsonFile);
+        ParsedAnalysis parsed;
+        try (JsonParser parser = objectMapper.getFactory().createParser(jsonFile)) {
+            parsed = parse(parser);
+        }
+
+        if (parsed == null) {
+            log.debug("Unknown analysis JSON layout, falling back to tree model: {}", jsonFilePath);
+            return toAnalysis(objectMapper.readTree(jsonFile), track);
+        }
+        return toAnalysis(parsed, track);
+    }
+
+    /**
+     * Same as readAnalysisFromJson, but returns the raw feature vector instead of an entity
+     * (used by the batch ingest, which writes rows directly).
+     */
+    public ParsedAnalysis readFeatures(String jsonFilePath, Track track) throws IOException {
+        File jsonFile = new File(jsonFilePath);
+        if (!jsonFile.exists()) {
+            throw new IOException("Analysis JSON file not found: " + jsonFilePath);
+        }
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(jsonFile)) {
+            ParsedAnalysis parsed = parse(parser);
+            if (parsed != null) {
+                return parsed;
+            }
+        }
+
+        log.debug("Unknown analysis JSON layout, falling back to tree model: {}", jsonFilePath);
+        return fromAnalysis(toAnalysis(objectMapper.readTree(jsonFile), track));
+    }
+
+    /**
+     * Result document delivered inline in the message, in the same schema as the result file.
+     */
+    public ParsedAnalysis readFeatures(JsonNode result, Track track) throws IOException {
+        try (JsonParser parser = objectMapper.treeAsTokens(result)) {
+            ParsedAnalysis parsed = parse(parser);
+            if (parsed != null) {
+                return parsed;
+            }
+        }
+
+        log.debug("Unknown inline analysis layout for track {}, falling back to tree model", track.getId());
+        return fromAnalysis(toAnalysis(result, track));
+    }
+
+    /**
+     * Compact form: AnalysisFeatures.COUNT big-endian float32 values (NaN = missing).
+     *
+     * @return null if the vector was packed with a different layout version or has the wrong length
+     */
+    public ParsedAnalysis unpackFeatures(byte[] packed, Short version) {
+        if (version == null || version != AnalysisFeatures.VERSION || packed.length != AnalysisFeatures.COUNT * Float.BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(packed);
+        double[] values = new double[AnalysisFeatures.COUNT];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.getFloat();
+        }
+        return new ParsedAnalysis(true, null, values);
+    }
+
+    private ParsedAnalysis fromAnalysis(TrackAnalysis analysis) {
+        if (analysis.hasError()) {
+            return new ParsedAnalysis(false, analysis.getErrorMessage(), null);
+        }
+        float[] features = AnalysisFeatures.fromAnalysis(analysis);
+        double[] values = new double[features.length];
+        for (int i = 0; i < features.length; i++) {
+            values[i] = features[i];
+        }
+        return new ParsedAnalysis(true, null, values);
+    }
+
+    /**
+     * Single streaming pass: known feature paths are decoded straight into a double[] (AnalysisFeatures layout),
+     * everything else (frame-level arrays etc.) is skipped without materialising it.
+     *
+     * @return null if the document doesn't look like the known layout
+     */
+    public ParsedAnalysis parse(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+
+        boolean success = false;
+        String errorMessage = null;
+        double[] values = null;
+        int knownFields = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+
+            if ("success".equals(field)) {
+                success = token == JsonToken.VALUE_TRUE;
+            } else if ("errorMessage".equals(field)) {
+                errorMessage = readErrorMessage(parser, token);
+            } else if ("features".equals(field) && token == JsonToken.START_OBJECT) {
+                values = new double[AnalysisFeatures.COUNT];
+                Arrays.fill(values, Double.NaN);
+                knownFields = readFeatureGroups(parser, values);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (success && errorMessage == null && knownFields == 0) {
+            return null;
+        }
+        return new ParsedAnalysis(success, errorMessage, values);
+    }
+
+    /**
+     * Scalars are taken as text; a structured error (object/array) is kept as its JSON so the parser
+     * stays positioned after it.
+     */
+    private String readErrorMessage(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            return objectMapper.readTree(parser).toString();
+        }
+        return parser.getValueAsString();
+    }
+
+    public TrackAnalysis toAnalysis(ParsedAnalysis parsed, Track track) {
+        TrackAnalysis analysis = new TrackAnalysis(track);
+
+        if (!parsed.success() || parsed.errorMessage() != null) {
+            analysis.setErrorMessage(parsed.errorMessage() != null ? parsed.errorMessage() : "Unknown error");
+            log.warn("Analysis failed for track {}: {}", track.getId(), analysis.getErrorMessage());
+            return analysis;
+        }
+
+        AnalysisFeatures.applyTo(parsed.values(), analysis);
+        log.info("Successfully parsed analysis for track {}: BPM={}, Danceability={}",
+                track.getId(), analysis.getBpm(), analysis.getDanceability());
+        return analysis;
+    }
+
+    private int readFeatureGroups(JsonParser parser, double[] values) throws IOException {
+        int knownFields = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Map<String, Integer> group = FEATURE_PATHS.get(parser.currentName());
+            if (parser.nextToken() != JsonToken.START_OBJECT || group == null) {
+                parser.skipChildren();
+                continue;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Integer index = group.get(parser.currentName());
+                JsonToken token = parser.nextToken();
+
+                if (index == null) {
+                    parser.skipChildren();
+                } else if (token.isNumeric()) {
+                    values[index] = parser.getDoubleValue();
+                    knownFields++;
+                } else if (token == JsonToken.VALUE_STRING) {
+                    try {
+                        values[index] = Double.parseDouble(parser.getText());
+                        knownFields++;
+                    } catch (NumberFormatException e) {
+                        log.warn("Failed to parse {} as number: {}", parser.currentName(), parser.getText());
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return knownFields;
+    }
+
+    private static Map<String, Map<String, Integer>> featurePaths() {
+        Map<String, Map<String, Integer>> paths = new HashMap<>();
+        for (int i = 0; i < AnalysisFeatures.COUNT; i++) {
+            paths.computeIfAbsent(AnalysisFeatures.groupOf(i), group -> new HashMap<>())
+                    .put(AnalysisFeatures.NAMES.get(i), i);
+        }
+        return paths;
+    }
 
+    /**
+     * Tree-model reader, used for layouts the streaming pass doesn't recognise.
+     */
+    public TrackAnalysis toAnalysis(JsonNode root, Track track) {
         TrackAnalysis analysis = new TrackAnalysis(track);
 
         // Check if analysis was successful
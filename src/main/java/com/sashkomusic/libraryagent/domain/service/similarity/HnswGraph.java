@@ -0,0 +1,191 @@
+package com.sashkomusic.libraryagent.domain.service.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Hierarchical navigable small world graph over matrix rows (approximate nearest neighbours).
+ * Nodes are row indices, distances come from the owner. Not thread-safe - the owner guards it.
+ */
+class HnswGraph {
+
+    interface Distance {
+        double between(int a, int b);
+    }
+
+    record Scored(int node, double distance) {}
+
+    private static final Comparator<Scored> CLOSEST_FIRST = Comparator.comparingDouble(Scored::distance);
+
+    private final int m;
+    private final int maxLinksLevel0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Distance distance;
+    private final Random random = new Random(42);
+
+    // links.get(node)[level] - neighbour rows of node on that level
+    private final List<int[][]> links = new ArrayList<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswGraph(int m, int efConstruction, Distance distance) {
+        this.m = m;
+        this.maxLinksLevel0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.distance = distance;
+    }
+
+    void insert(int node) {
+        int level = (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+
+        while (links.size() <= node) {
+            links.add(null);
+        }
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[0];
+        }
+        links.set(node, nodeLinks);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        IntToDoubleFunction toNode = other -> distance.between(node, other);
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(toNode, current, l);
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Scored> candidates = searchLayer(toNode, current, efConstruction, l);
+            int maxLinks = l == 0 ? maxLinksLevel0 : m;
+
+            int[] neighbours = candidates.stream()
+                    .limit(m)
+                    .mapToInt(Scored::node)
+                    .toArray();
+            nodeLinks[l] = neighbours;
+
+            for (int neighbour : neighbours) {
+                connect(neighbour, node, l, maxLinks);
+            }
+            current = candidates.getFirst().node();
+        }
+
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * Nodes closest to the query, closest first. Deleted nodes are traversed but not returned.
+     */
+    List<Scored> search(IntToDoubleFunction toQuery, int k, int ef, BitSet deleted) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedyClosest(toQuery, current, l);
+        }
+
+        return searchLayer(toQuery, current, Math.max(ef, k), 0).stream()
+                .filter(scored -> !deleted.get(scored.node()))
+                .limit(k)
+                .toList();
+    }
+
+    private void connect(int node, int newNeighbour, int level, int maxLinks) {
+        int[] existing = links.get(node)[level];
+        int[] updated = new int[existing.length + 1];
+        System.arraycopy(existing, 0, updated, 0, existing.length);
+        updated[existing.length] = newNeighbour;
+
+        if (updated.length > maxLinks) {
+            // Keep the closest links only
+            updated = Arrays.stream(updated)
+                    .boxed()
+                    .sorted(Comparator.comparingDouble(other -> distance.between(node, other)))
+                    .limit(maxLinks)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        links.get(node)[level] = updated;
+    }
+
+    private int greedyClosest(IntToDoubleFunction toQuery, int start, int level) {
+        int current = start;
+        double currentDistance = toQuery.applyAsDouble(current);
+        boolean improved = true;
+
+        while (improved) {
+            improved = false;
+            for (int neighbour : neighbours(current, level)) {
+                double d = toQuery.applyAsDouble(neighbour);
+                if (d < currentDistance) {
+                    current = neighbour;
+                    currentDistance = d;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private List<Scored> searchLayer(IntToDoubleFunction toQuery, int start, int ef, int level) {
+        BitSet visited = new BitSet();
+        PriorityQueue<Scored> candidates = new PriorityQueue<>(CLOSEST_FIRST);
+        PriorityQueue<Scored> results = new PriorityQueue<>(CLOSEST_FIRST.reversed());
+
+        Scored first = new Scored(start, toQuery.applyAsDouble(start));
+        visited.set(start);
+        candidates.add(first);
+        results.add(first);
+
+        while (!candidates.isEmpty()) {
+            Scored candidate = candidates.poll();
+            if (results.size() >= ef && candidate.distance() > results.peek().distance()) {
+                break;
+            }
+
+            for (int neighbour : neighbours(candidate.node(), level)) {
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+
+                double d = toQuery.applyAsDouble(neighbour);
+                if (results.size() < ef || d < results.peek().distance()) {
+                    Scored scored = new Scored(neighbour, d);
+                    candidates.add(scored);
+                    results.add(scored);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Scored> sorted = new ArrayList<>(results);
+        sorted.sort(CLOSEST_FIRST);
+        return sorted;
+    }
+
+    private int[] neighbours(int node, int level) {
+        int[][] nodeLinks = links.get(node);
+        return level < nodeLinks.length ? nodeLinks[level] : new int[0];
+    }
+}
@@ -0,0 +1,59 @@
+package com.sashkomusic.libraryagent.domain.service.similarity;
+
+/**
+ * Per-dimension mean/variance (Welford), updated as vectors are added and removed. NaN values are ignored.
+ */
+class RunningStats {
+
+    private final long[] counts;
+    private final double[] means;
+    private final double[] m2;
+
+    RunningStats(int dimensions) {
+        this.counts = new long[dimensions];
+        this.means = new double[dimensions];
+        this.m2 = new double[dimensions];
+    }
+
+    void add(float[] vector) {
+        for (int i = 0; i < vector.length; i++) {
+            if (Float.isNaN(vector[i])) {
+                continue;
+            }
+            counts[i]++;
+            double delta = vector[i] - means[i];
+            means[i] += delta / counts[i];
+            m2[i] += delta * (vector[i] - means[i]);
+        }
+    }
+
+    void remove(float[] vector) {
+        for (int i = 0; i < vector.length; i++) {
+            if (Float.isNaN(vector[i]) || counts[i] == 0) {
+                continue;
+            }
+            if (counts[i] == 1) {
+                counts[i] = 0;
+                means[i] = 0;
+                m2[i] = 0;
+                continue;
+            }
+            counts[i]--;
+            double delta = vector[i] - means[i];
+            means[i] -= delta / counts[i];
+            m2[i] = Math.max(0, m2[i] - delta * (vector[i] - means[i]));
+        }
+    }
+
+    /**
+     * 1/variance per dimension - weights of the z-score distance. Constant dimensions get 0.
+     */
+    float[] inverseVariances() {
+        float[] weights = new float[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            double variance = counts[i] > 1 ? m2[i] / (counts[i] - 1) : 0;
+            weights[i] = variance > 1e-12 ? (float) (1.0 / variance) : 0f;
+        }
+        return weights;
+    }
+}
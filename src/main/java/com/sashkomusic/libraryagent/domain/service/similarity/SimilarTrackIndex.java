@@ -0,0 +1,365 @@
+package com.sashkomusic.libraryagent.domain.service.similarity;
+
+import com.sashkomusic.libraryagent.domain.model.AnalysisFeatures;
+import com.sashkomusic.libraryagent.domain.repository.FeatureVectorRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Similar tracks" over the timbral analysis features (MFCC stats, spectral shape, loudness, danceability).
+ * Raw feature rows live in one contiguous float[] matrix; distance is Euclidean over z-scores,
+ * with mean/variance maintained incrementally as analyses arrive.
+ * Small libraries are scanned exactly, larger ones go through an HNSW graph and the
+ * candidates are re-ranked exactly. Replaced/removed rows are tombstoned and compacted away once
+ * they make up a quarter of the matrix.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SimilarTrackIndex {
+
+    private static final int DIMENSIONS = AnalysisFeatures.SIMILARITY_FEATURES.length;
+
+    private final FeatureVectorRepository featureVectorRepository;
+
+    @Value("${similarity.hnsw.threshold:20000}")
+    private int hnswThreshold;
+
+    @Value("${similarity.hnsw.m:16}")
+    private int hnswM;
+
+    @Value("${similarity.hnsw.ef-construction:200}")
+    private int hnswEfConstruction;
+
+    @Value("${similarity.hnsw.ef-search:100}")
+    private int hnswEfSearch;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> rowByTrack = new HashMap<>();
+    private final BitSet deletedRows = new BitSet();
+
+    private float[] matrix = new float[1024 * DIMENSIONS];
+    private long[] rowTrackIds = new long[1024];
+    private int rowCount;
+    private RunningStats stats = new RunningStats(DIMENSIONS);
+    private float[] weights = new float[DIMENSIONS];
+
+    // Approximate index, built with frozen weights once the library is large enough
+    private HnswGraph graph;
+    private float[] graphWeights;
+    private int rowsChangedSinceGraphBuild;
+    private volatile boolean ready;
+
+    // Updates that arrive while rebuild() loads from the DB, replayed on top of the loaded vectors (null = removed)
+    private Map<Long, float[]> updatesDuringRebuild;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        CompletableFuture.runAsync(this::rebuild);
+    }
+
+    /**
+     * Reloads every vector from the DB. The load runs without the lock, so updates that land meanwhile
+     * are journaled and replayed on top of it - the loaded row for a track may predate them.
+     */
+    public synchronized void rebuild() {
+        long startTime = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            updatesDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Long> trackIds = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        try {
+            featureVectorRepository.forEachVector((trackId, features) -> {
+                float[] vector = AnalysisFeatures.select(features, AnalysisFeatures.SIMILARITY_FEATURES);
+                if (!AnalysisFeatures.isEmpty(vector)) {
+                    trackIds.add(trackId);
+                    vectors.add(vector);
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                updatesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            rowByTrack.clear();
+            deletedRows.clear();
+            rowCount = 0;
+            graph = null;
+            stats = new RunningStats(DIMENSIONS);
+
+            for (int i = 0; i < trackIds.size(); i++) {
+                appendRow(trackIds.get(i), vectors.get(i));
+                stats.add(vectors.get(i));
+            }
+            int replayed = updatesDuringRebuild.size();
+            updatesDuringRebuild.forEach(this::replaceRow);
+            updatesDuringRebuild = null;
+            compact();
+
+            weights = stats.inverseVariances();
+            if (liveRows() >= hnswThreshold) {
+                buildGraph();
+            }
+            ready = true;
+            log.info("Similarity index built in {}ms: {} tracks ({} concurrent updates replayed), approximate index: {}",
+                    System.currentTimeMillis() - startTime, liveRows(), replayed, graph != null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * New or replaced analysis for a track.
+     */
+    public void onAnalysisChanged(Long trackId, float[] features) {
+        float[] vector = AnalysisFeatures.select(features, AnalysisFeatures.SIMILARITY_FEATURES);
+        update(trackId, AnalysisFeatures.isEmpty(vector) ? null : vector);
+    }
+
+    public void remove(Long trackId) {
+        update(trackId, null);
+    }
+
+    public List<SimilarTrack> findSimilar(Long trackId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Integer row = rowByTrack.get(trackId);
+            if (row == null) {
+                return List.of();
+            }
+            float[] query = rowVector(row);
+
+            if (graph == null) {
+                return exactSearch(query, row, limit);
+            }
+
+            // Over-fetch from the graph, then re-rank with the current weights
+            List<SimilarTrack> result = new ArrayList<>();
+            for (HnswGraph.Scored candidate : graph.search(
+                    other -> distance(query, 0, other, graphWeights), limit * 2 + 1, hnswEfSearch, deletedRows)) {
+                if (candidate.node() != row) {
+                    result.add(new SimilarTrack(rowTrackIds[candidate.node()],
+                            Math.sqrt(distance(query, 0, candidate.node(), weights))));
+                }
+            }
+            result.sort(Comparator.comparingDouble(SimilarTrack::distance));
+            return result.size() > limit ? result.subList(0, limit) : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private List<SimilarTrack> exactSearch(float[] query, int queryRow, int limit) {
+        PriorityQueue<SimilarTrack> top = new PriorityQueue<>(
+                Comparator.comparingDouble(SimilarTrack::distance).reversed());
+
+        for (int row = 0; row < rowCount; row++) {
+            if (row == queryRow || deletedRows.get(row)) {
+                continue;
+            }
+            double d = distance(query, 0, row, weights);
+            if (top.size() < limit) {
+                top.add(new SimilarTrack(rowTrackIds[row], d));
+            } else if (d < top.peek().distance()) {
+                top.poll();
+                top.add(new SimilarTrack(rowTrackIds[row], d));
+            }
+        }
+
+        List<SimilarTrack> result = new ArrayList<>(top.size());
+        for (SimilarTrack track : top) {
+            result.add(new SimilarTrack(track.trackId(), Math.sqrt(track.distance())));
+        }
+        result.sort(Comparator.comparingDouble(SimilarTrack::distance));
+        return result;
+    }
+
+    /**
+     * Squared z-score distance: sum((x - q)^2 / variance). Missing features contribute nothing.
+     * Plain indexed loop over the contiguous row, which C2 can auto-vectorise.
+     */
+    private double distance(float[] query, int queryOffset, int row, float[] w) {
+        int offset = row * DIMENSIONS;
+        float sum = 0f;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            float diff = matrix[offset + i] - query[queryOffset + i];
+            if (diff == diff) {
+                sum += diff * diff * w[i];
+            }
+        }
+        return sum;
+    }
+
+    private void buildGraph() {
+        long startTime = System.currentTimeMillis();
+        graphWeights = weights.clone();
+        graph = new HnswGraph(hnswM, hnswEfConstruction, (a, b) -> distance(matrix, a * DIMENSIONS, b, graphWeights));
+
+        for (int row = 0; row < rowCount; row++) {
+            if (!deletedRows.get(row)) {
+                graph.insert(row);
+            }
+        }
+        rowsChangedSinceGraphBuild = 0;
+        log.info("Built HNSW similarity graph over {} tracks in {}ms", liveRows(), System.currentTimeMillis() - startTime);
+    }
+
+    private void update(Long trackId, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            if (updatesDuringRebuild != null) {
+                updatesDuringRebuild.put(trackId, vector);
+            }
+
+            boolean existed = rowByTrack.containsKey(trackId);
+            Integer row = replaceRow(trackId, vector);
+            if (!existed && row == null) {
+                return;
+            }
+            rowsChangedSinceGraphBuild++;
+
+            if (deletedRows.cardinality() * 4 > rowCount) {
+                // Row numbers change, so the graph goes with it
+                compact();
+                graph = null;
+            }
+
+            if (graph != null && rowsChangedSinceGraphBuild < liveRows() / 4) {
+                if (row != null) {
+                    graph.insert(row);
+                }
+            } else if (liveRows() >= hnswThreshold) {
+                // Weights drifted (or the library just crossed the threshold) - rebuild with fresh ones
+                compact();
+                buildGraph();
+            } else {
+                graph = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tombstones the track's current row and appends the new vector (null = remove only).
+     * Returns the new row, or null when nothing was appended.
+     */
+    private Integer replaceRow(Long trackId, float[] vector) {
+        removeRow(trackId);
+        if (vector == null) {
+            return null;
+        }
+        int row = appendRow(trackId, vector);
+        stats.add(vector);
+        weights = stats.inverseVariances();
+        return row;
+    }
+
+    private int appendRow(long trackId, float[] vector) {
+        if (rowCount == rowTrackIds.length) {
+            rowTrackIds = Arrays.copyOf(rowTrackIds, rowCount * 2);
+            matrix = Arrays.copyOf(matrix, rowCount * 2 * DIMENSIONS);
+        }
+        int row = rowCount++;
+        System.arraycopy(vector, 0, matrix, row * DIMENSIONS, DIMENSIONS);
+        rowTrackIds[row] = trackId;
+        rowByTrack.put(trackId, row);
+        return row;
+    }
+
+    private void removeRow(Long trackId) {
+        Integer previous = rowByTrack.remove(trackId);
+        if (previous != null) {
+            stats.remove(rowVector(previous));
+            weights = stats.inverseVariances();
+            deletedRows.set(previous);
+        }
+    }
+
+    /**
+     * Drops deleted rows so the matrix stays dense.
+     */
+    private void compact() {
+        int target = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (deletedRows.get(row)) {
+                continue;
+            }
+            if (target != row) {
+                System.arraycopy(matrix, row * DIMENSIONS, matrix, target * DIMENSIONS, DIMENSIONS);
+                rowTrackIds[target] = rowTrackIds[row];
+                rowByTrack.put(rowTrackIds[target], target);
+            }
+            target++;
+        }
+        rowCount = target;
+        deletedRows.clear();
+    }
+
+    private float[] rowVector(int row) {
+        return Arrays.copyOfRange(matrix, row * DIMENSIONS, (row + 1) * DIMENSIONS);
+    }
+
+    private int liveRows() {
+        return rowByTrack.size();
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return liveRows();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rows held in the matrix, live plus tombstoned.
+     */
+    int matrixRows() {
+        lock.readLock().lock();
+        try {
+            return rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public record SimilarTrack(long trackId, double distance) {}
+}
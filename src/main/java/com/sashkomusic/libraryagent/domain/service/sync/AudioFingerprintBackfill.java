@@ -0,0 +1,96 @@
+package com.sashkomusic.libraryagent.domain.service.sync;
+
+import com.sashkomusic.libraryagent.domain.repository.AnalysisRequestRepository;
+import com.sashkomusic.libraryagent.domain.repository.TrackRepository;
+import com.sashkomusic.libraryagent.domain.repository.TrackRepository.TrackFileView;
+import com.sashkomusic.libraryagent.domain.service.utils.AudioFingerprinter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fingerprints the existing library in the background. Sync only fingerprints files it re-reads,
+ * so tracks that never change would otherwise keep a null fingerprint (no rename detection, size/mtime
+ * analysis signature). Works through the tracks by id, per-tick files at a time; files that can't be
+ * fingerprinted are not retried until the next start.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AudioFingerprintBackfill {
+
+    private final TrackRepository trackRepository;
+    private final AnalysisRequestRepository requestRepository;
+    private final AudioFingerprinter fingerprinter;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${fingerprint.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fingerprint.backfill.per-tick:50}")
+    private int perTick;
+
+    private long lastTrackId;
+    private boolean finished;
+    private int stored;
+
+    @Scheduled(fixedDelayString = "${fingerprint.backfill.interval:10000}",
+            initialDelayString = "${fingerprint.backfill.interval:10000}")
+    public synchronized void tick() {
+        if (!enabled || finished) {
+            return;
+        }
+
+        List<TrackFileView> batch = trackRepository.findUnfingerprinted(lastTrackId, perTick);
+        if (batch.isEmpty()) {
+            finished = true;
+            if (stored > 0) {
+                log.info("Audio fingerprint backfill finished: {} tracks fingerprinted", stored);
+            }
+            return;
+        }
+
+        // Hash outside the transaction, then store the whole tick at once
+        long startTime = System.currentTimeMillis();
+        List<Fingerprinted> fingerprints = new ArrayList<>();
+        for (TrackFileView track : batch) {
+            lastTrackId = track.getId();
+            String fingerprint = fingerprinter.fingerprint(Paths.get(track.getLocalPath()));
+            if (fingerprint != null) {
+                fingerprints.add(new Fingerprinted(track, fingerprint));
+            }
+        }
+
+        Integer updated = transactionTemplate.execute(status -> {
+            int count = 0;
+            for (Fingerprinted fingerprinted : fingerprints) {
+                count += store(fingerprinted.track(), fingerprinted.fingerprint());
+            }
+            return count;
+        });
+        stored += updated != null ? updated : 0;
+
+        log.debug("Fingerprint backfill: {} of {} tracks in {}ms (up to track {})",
+                updated, batch.size(), System.currentTimeMillis() - startTime, lastTrackId);
+    }
+
+    private int store(TrackFileView track, String fingerprint) {
+        if (trackRepository.setAudioFingerprintIfMissing(track.getId(), fingerprint) == 0) {
+            return 0;
+        }
+        if (track.getFileSize() != null && track.getFileModifiedMillis() != null) {
+            requestRepository.replaceSignature(track.getId(),
+                    track.getFileSize() + ":" + track.getFileModifiedMillis(), fingerprint);
+        }
+        return 1;
+    }
+
+    private record Fingerprinted(TrackFileView track, String fingerprint) {}
+}
@@ -0,0 +1,289 @@
+package com.sashkomusic.libraryagent.domain.service.sync;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Continuous, time-sliced replacement for the hourly full sync pass.
+ * Every slice processes the directories that are due, bounded by a file count and a time budget.
+ * Directories with recent changes stay "young" and are rescanned often; unchanged ones age
+ * and their rescan interval doubles up to the old-generation interval.
+ * Discovery of new/removed directories is incremental too: a round lists the tree a few directory
+ * levels per slice (within the same budget) instead of walking the whole library at once.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ContinuousSyncScheduler {
+
+    private final TrackTagSyncService syncService;
+
+    @Value("${sync.continuous.enabled:false}")
+    private boolean continuousEnabled;
+
+    @Value("${sync.library-path:/Users/okravch/my/sm/lib}")
+    private String libraryPath;
+
+    @Value("${sync.continuous.max-files-per-slice:200}")
+    private int maxFilesPerSlice;
+
+    @Value("${sync.continuous.max-slice-duration:5000}")
+    private long maxSliceDurationMillis;
+
+    @Value("${sync.continuous.young-interval:600000}")
+    private long youngIntervalMillis;
+
+    @Value("${sync.continuous.old-interval:86400000}")
+    private long oldIntervalMillis;
+
+    @Value("${sync.continuous.discovery-interval:3600000}")
+    private long discoveryIntervalMillis;
+
+    private final Map<Path, DirectoryState> directories = new HashMap<>();
+    private final PriorityQueue<DirectoryState> schedule =
+            new PriorityQueue<>(Comparator.comparingLong(DirectoryState::getNextScanAt));
+    private long lastDiscoveryAt;
+
+    // Current discovery round: directories still to be listed, and those found holding audio files so far
+    private final Deque<Path> discoveryQueue = new ArrayDeque<>();
+    private final Set<Path> discoveredThisRound = new HashSet<>();
+    private long discoveryStartedAt;
+    private int discoveryAdded;
+
+    @Scheduled(fixedDelayString = "${sync.continuous.slice-interval:180000}",
+            initialDelayString = "${sync.continuous.slice-interval:180000}")
+    public synchronized void runSlice() {
+        if (!continuousEnabled) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long deadline = now + maxSliceDurationMillis;
+        SliceBudget budget = new SliceBudget(maxFilesPerSlice, deadline);
+
+        if (discoveryQueue.isEmpty() && now - lastDiscoveryAt >= discoveryIntervalMillis) {
+            startDiscoveryRound(now);
+        }
+        if (!discoveryQueue.isEmpty()) {
+            discoverIncrementally(budget);
+        }
+
+        int directoriesScanned = 0;
+        int updated = 0;
+
+        while (!schedule.isEmpty() && schedule.peek().getNextScanAt() <= now && budget.hasRemaining()) {
+            DirectoryState state = schedule.poll();
+            updated += scanDirectory(state, budget);
+            directoriesScanned++;
+            schedule.add(state);
+        }
+
+        if (directoriesScanned > 0) {
+            log.info("Sync slice: {} directories, {} files checked, {} tracks updated in {}ms ({} directories due)",
+                    directoriesScanned, budget.filesUsed, updated, System.currentTimeMillis() - now, countDue(now));
+        }
+    }
+
+    /**
+     * Compares a directory against its snapshot and syncs changed files.
+     * If the budget runs out midway the directory stays due, unprocessed files are picked up next slice.
+     */
+    private int scanDirectory(DirectoryState state, SliceBudget budget) {
+        Map<String, Long> current = listAudioFiles(state.path);
+        boolean firstVisit = state.snapshot == null;
+        Map<String, Long> snapshot = firstVisit ? new HashMap<>() : state.snapshot;
+        boolean changed = !firstVisit && !snapshot.keySet().equals(current.keySet());
+        boolean completed = true;
+        int updated = 0;
+
+        for (Map.Entry<String, Long> entry : current.entrySet()) {
+            Long known = snapshot.get(entry.getKey());
+            if (known != null && known.equals(entry.getValue())) {
+                continue;
+            }
+
+            if (!budget.hasRemaining()) {
+                completed = false;
+                break;
+            }
+
+            budget.filesUsed++;
+            try {
+                if (syncService.syncTrackByPath(state.path.resolve(entry.getKey()))) {
+                    updated++;
+                }
+            } catch (Exception e) {
+                log.error("Slice sync failed for {}: {}", entry.getKey(), e.getMessage());
+            }
+
+            snapshot.put(entry.getKey(), entry.getValue());
+            changed |= !firstVisit;
+        }
+
+        snapshot.keySet().retainAll(current.keySet());
+        state.snapshot = snapshot;
+
+        long now = System.currentTimeMillis();
+        if (!completed) {
+            state.nextScanAt = now;
+        } else if (changed) {
+            state.interval = youngIntervalMillis;
+            state.nextScanAt = now + state.interval;
+        } else {
+            state.interval = Math.min(state.interval * 2, oldIntervalMillis);
+            state.nextScanAt = now + state.interval;
+        }
+        return updated;
+    }
+
+    private void startDiscoveryRound(long now) {
+        discoveryQueue.add(Paths.get(libraryPath));
+        discoveredThisRound.clear();
+        discoveryStartedAt = now;
+        discoveryAdded = 0;
+    }
+
+    /**
+     * Lists pending directories (one level each) using at most half of the slice budget, so the
+     * rescans of due directories always get the rest. Every listed entry counts as one file.
+     */
+    private void discoverIncrementally(SliceBudget budget) {
+        int discoveryLimit = Math.max(1, maxFilesPerSlice / 2);
+        while (!discoveryQueue.isEmpty() && budget.filesUsed < discoveryLimit && budget.hasRemaining()) {
+            budget.filesUsed += listForDiscovery(discoveryQueue.poll());
+        }
+
+        if (discoveryQueue.isEmpty()) {
+            finishDiscoveryRound();
+        }
+    }
+
+    private int listForDiscovery(Path directory) {
+        int entriesSeen = 0;
+        boolean hasAudio = false;
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                entriesSeen++;
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                    if (attrs.isDirectory()) {
+                        discoveryQueue.add(entry);
+                    } else if (!hasAudio && attrs.isRegularFile() && LibraryFileWalker.isAudioFile(entry)) {
+                        hasAudio = true;
+                    }
+                } catch (IOException e) {
+                    log.trace("Cannot stat {}: {}", entry, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Cannot list directory {}: {}", directory, e.getMessage());
+        }
+
+        if (hasAudio) {
+            discoveredThisRound.add(directory);
+            if (!directories.containsKey(directory)) {
+                DirectoryState state = new DirectoryState(directory, youngIntervalMillis, System.currentTimeMillis());
+                directories.put(directory, state);
+                schedule.add(state);
+                discoveryAdded++;
+            }
+        }
+        return Math.max(1, entriesSeen);
+    }
+
+    /**
+     * The whole tree has been listed - directories not seen in this round are gone.
+     */
+    private void finishDiscoveryRound() {
+        List<DirectoryState> removed = new ArrayList<>();
+        directories.values().removeIf(state -> {
+            if (!discoveredThisRound.contains(state.path)) {
+                removed.add(state);
+                return true;
+            }
+            return false;
+        });
+        schedule.removeAll(removed);
+        discoveredThisRound.clear();
+        lastDiscoveryAt = System.currentTimeMillis();
+
+        log.info("Continuous sync discovery round done in {}ms: {} directories tracked ({} added, {} removed)",
+                lastDiscoveryAt - discoveryStartedAt, directories.size(), discoveryAdded, removed.size());
+    }
+
+    private Map<String, Long> listAudioFiles(Path directory) {
+        Map<String, Long> files = new HashMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (!LibraryFileWalker.isAudioFile(entry)) {
+                    continue;
+                }
+                BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                if (attrs.isRegularFile()) {
+                    files.put(entry.getFileName().toString(), attrs.lastModifiedTime().toMillis());
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Cannot list directory {}: {}", directory, e.getMessage());
+        }
+        return files;
+    }
+
+    private long countDue(long now) {
+        return schedule.stream().filter(state -> state.nextScanAt <= now).count();
+    }
+
+    private static class DirectoryState {
+        private final Path path;
+        private long interval;
+        private long nextScanAt;
+        // File name -> mtime as of the last scan, null until the first visit
+        private Map<String, Long> snapshot;
+
+        DirectoryState(Path path, long interval, long nextScanAt) {
+            this.path = path;
+            this.interval = interval;
+            this.nextScanAt = nextScanAt;
+        }
+
+        long getNextScanAt() {
+            return nextScanAt;
+        }
+    }
+
+    private static class SliceBudget {
+        private final int maxFiles;
+        private final long deadline;
+        private int filesUsed;
+
+        SliceBudget(int maxFiles, long deadline) {
+            this.maxFiles = maxFiles;
+            this.deadline = deadline;
+        }
+
+        boolean hasRemaining() {
+            return filesUsed < maxFiles && System.currentTimeMillis() < deadline;
+        }
+    }
+}
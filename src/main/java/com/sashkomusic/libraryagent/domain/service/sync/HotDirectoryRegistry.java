@@ -0,0 +1,118 @@
+package com.sashkomusic.libraryagent.domain.service.sync;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the "hot" set of release directories that get native file watches in hybrid mode.
+ * Directories are promoted on ingest, rating and detected modifications, and demoted when
+ * they stay idle longer than the configured TTL or get pushed out by the watch budget (LRU).
+ */
+@Component
+@Slf4j
+public class HotDirectoryRegistry {
+
+    @Value("${watch.hybrid.max-watched-directories:2000}")
+    private int maxWatchedDirectories;
+
+    @Value("${watch.hybrid.hot-ttl:604800000}")
+    private long hotTtlMillis;
+
+    // Access-ordered, so the eldest entry is always the least recently active directory
+    private final LinkedHashMap<Path, Long> hotDirectories = new LinkedHashMap<>(64, 0.75f, true);
+
+    private boolean changed;
+
+    public synchronized void promote(Path directory) {
+        promote(directory, System.currentTimeMillis());
+    }
+
+    public synchronized void promote(Path directory, long lastActivityMillis) {
+        if (directory == null) {
+            return;
+        }
+
+        Path normalized = directory.toAbsolutePath().normalize();
+        Long previous = hotDirectories.put(normalized, Math.max(lastActivityMillis,
+                hotDirectories.getOrDefault(normalized, 0L)));
+
+        if (previous == null) {
+            changed = true;
+            log.debug("Promoted directory to hot set: {}", normalized);
+        }
+
+        while (hotDirectories.size() > maxWatchedDirectories) {
+            Iterator<Map.Entry<Path, Long>> eldest = hotDirectories.entrySet().iterator();
+            Path evicted = eldest.next().getKey();
+            eldest.remove();
+            changed = true;
+            log.debug("Watch budget exceeded, demoted directory: {}", evicted);
+        }
+    }
+
+    public void promoteParentOf(Path file) {
+        if (file != null && file.getParent() != null) {
+            promote(file.getParent());
+        }
+    }
+
+    /**
+     * Demotes directories that had no activity within the hot TTL.
+     *
+     * @return demoted directories
+     */
+    public synchronized List<Path> demoteExpired() {
+        long threshold = System.currentTimeMillis() - hotTtlMillis;
+        List<Path> demoted = new ArrayList<>();
+
+        Iterator<Map.Entry<Path, Long>> iterator = hotDirectories.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (entry.getValue() < threshold) {
+                demoted.add(entry.getKey());
+                iterator.remove();
+            }
+        }
+
+        if (!demoted.isEmpty()) {
+            changed = true;
+            log.debug("Demoted {} idle directories from hot set", demoted.size());
+        }
+        return demoted;
+    }
+
+    public synchronized boolean isHot(Path directory) {
+        // Plain get() would reorder the access-ordered map
+        return directory != null && hotDirectories.containsKey(directory.toAbsolutePath().normalize());
+    }
+
+    public synchronized Set<Path> snapshot() {
+        return Set.copyOf(hotDirectories.keySet());
+    }
+
+    /**
+     * Returns whether the hot set changed since the last call and resets the flag.
+     */
+    public synchronized boolean consumeChanges() {
+        boolean result = changed;
+        changed = false;
+        return result;
+    }
+
+    public synchronized int size() {
+        return hotDirectories.size();
+    }
+
+    public int getMaxWatchedDirectories() {
+        return maxWatchedDirectories;
+    }
+}
@@ -0,0 +1,122 @@
+package com.sashkomusic.libraryagent.domain.service.sync;
+
+import com.sashkomusic.libraryagent.domain.model.ScannedFile;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel (fork/join over directories) walk of the library tree.
+ * Only stats files - no tag parsing happens here.
+ */
+@Component
+@Slf4j
+public class LibraryFileWalker {
+
+    private static final Set<String> AUDIO_EXTENSIONS = Set.of(
+            "mp3", "flac", "wav", "m4a", "aac", "ogg", "wma", "alac", "opus"
+    );
+
+    private final ForkJoinPool pool;
+
+    public LibraryFileWalker(@Value("${sync.walk.parallelism:0}") int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    public List<ScannedFile> walk(Path root) {
+        return walk(root, Long.MIN_VALUE);
+    }
+
+    /**
+     * Walks the tree and returns audio files modified strictly after the given time.
+     */
+    public List<ScannedFile> walk(Path root, long modifiedAfterMillis) {
+        if (!Files.isDirectory(root)) {
+            log.warn("Library root is not a directory: {}", root);
+            return List.of();
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<ScannedFile> files = pool.invoke(new DirectoryTask(root, modifiedAfterMillis));
+
+        log.debug("Walked {} in {}ms: {} matching audio files",
+                root, System.currentTimeMillis() - startTime, files.size());
+        return files;
+    }
+
+    private static class DirectoryTask extends RecursiveTask<List<ScannedFile>> {
+
+        private final Path directory;
+        private final long modifiedAfterMillis;
+
+        DirectoryTask(Path directory, long modifiedAfterMillis) {
+            this.directory = directory;
+            this.modifiedAfterMillis = modifiedAfterMillis;
+        }
+
+        @Override
+        protected List<ScannedFile> compute() {
+            List<ScannedFile> files = new ArrayList<>();
+            List<DirectoryTask> subtasks = new ArrayList<>();
+
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    try {
+                        BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+
+                        if (attrs.isDirectory()) {
+                            DirectoryTask subtask = new DirectoryTask(entry, modifiedAfterMillis);
+                            subtask.fork();
+                            subtasks.add(subtask);
+                        } else if (attrs.isRegularFile() && isAudioFile(entry)) {
+                            long modifiedMillis = attrs.lastModifiedTime().toMillis();
+                            if (modifiedMillis > modifiedAfterMillis) {
+                                files.add(new ScannedFile(entry, attrs.size(), modifiedMillis));
+                            }
+                        }
+                    } catch (IOException e) {
+                        log.trace("Cannot stat {}: {}", entry, e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Cannot list directory {}: {}", directory, e.getMessage());
+            }
+
+            for (DirectoryTask subtask : subtasks) {
+                files.addAll(subtask.join());
+            }
+            return files;
+        }
+    }
+
+    static boolean isAudioFile(Path file) {
+        String fileName = file.getFileName().toString();
+        if (fileName.startsWith("._")) {
+            return false;
+        }
+
+        int lastDot = fileName.lastIndexOf('.');
+        if (lastDot == -1) {
+            return false;
+        }
+
+        return AUDIO_EXTENSIONS.contains(fileName.substring(lastDot + 1).toLowerCase());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,141 @@
+package com.sashkomusic.libraryagent.domain.service.sync;
+
+import com.sashkomusic.libraryagent.domain.model.ScannedFile;
+import com.sashkomusic.libraryagent.domain.repository.TrackRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Filesystem-first scanner: walks the library in parallel, sorts the result by path and
+ * merge-joins it against a path-sorted DB cursor, classifying every entry in one linear pass.
+ * The walk runs with no transaction open; only the cursor and the merge hold a connection.
+ */
+@Component
+@Slf4j
+public class LibraryScanner {
+
+    /**
+     * Code point order - matches PostgreSQL COLLATE "C" (UTF-8 byte order).
+     */
+    static final Comparator<String> PATH_ORDER = (a, b) -> {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Boolean.compare(i < a.length(), j < b.length());
+    };
+
+    private final LibraryFileWalker fileWalker;
+    private final TrackRepository trackRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public LibraryScanner(LibraryFileWalker fileWalker,
+                          TrackRepository trackRepository,
+                          PlatformTransactionManager transactionManager) {
+        this.fileWalker = fileWalker;
+        this.trackRepository = trackRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public ScanResult scan(Path root) {
+        long startTime = System.currentTimeMillis();
+
+        List<ScannedFile> files = new ArrayList<>(fileWalker.walk(root));
+        files.sort(Comparator.comparing(file -> file.path().toString(), PATH_ORDER));
+        long walkDuration = System.currentTimeMillis() - startTime;
+
+        ScanResult result = readOnlyTransaction.execute(status -> mergeJoin(root, files));
+        log.info("Library scan completed in {}ms (walk: {}ms): {} files, unchanged={}, modified={}, missing={}, new={}",
+                System.currentTimeMillis() - startTime, walkDuration, files.size(), result.unchanged(),
+                result.modified().size(), result.missingTrackIds().size(), result.newFiles().size());
+        return result;
+    }
+
+    /**
+     * Streams the path-sorted track rows against the sorted walk - needs the surrounding transaction for the cursor.
+     */
+    private ScanResult mergeJoin(Path root, List<ScannedFile> files) {
+        String rootPrefix = root.toString().endsWith(File.separator) ? root.toString() : root + File.separator;
+        int unchanged = 0;
+        List<ModifiedFile> modified = new ArrayList<>();
+        List<Long> missingTrackIds = new ArrayList<>();
+        List<ScannedFile> newFiles = new ArrayList<>();
+
+        try (Stream<TrackRepository.TrackFileView> rows = trackRepository.streamFileViewsOrderedByPath()) {
+            Iterator<TrackRepository.TrackFileView> rowIterator = rows
+                    .filter(view -> view.getLocalPath().startsWith(rootPrefix))
+                    .iterator();
+            Iterator<ScannedFile> fileIterator = files.iterator();
+
+            ScannedFile file = fileIterator.hasNext() ? fileIterator.next() : null;
+            TrackRepository.TrackFileView row = rowIterator.hasNext() ? rowIterator.next() : null;
+            String lastMatchedPath = null;
+
+            while (file != null || row != null) {
+                int cmp;
+                if (file == null) {
+                    cmp = 1;
+                } else if (row == null) {
+                    cmp = -1;
+                } else {
+                    cmp = PATH_ORDER.compare(file.path().toString(), row.getLocalPath());
+                }
+
+                if (cmp < 0) {
+                    newFiles.add(file);
+                    file = fileIterator.hasNext() ? fileIterator.next() : null;
+                } else if (cmp > 0) {
+                    if (row.getLocalPath().equals(lastMatchedPath)) {
+                        log.warn("Duplicate track rows for path: {} (track {})", lastMatchedPath, row.getId());
+                    } else {
+                        missingTrackIds.add(row.getId());
+                    }
+                    row = rowIterator.hasNext() ? rowIterator.next() : null;
+                } else {
+                    if (isUnchanged(row, file)) {
+                        unchanged++;
+                    } else {
+                        modified.add(new ModifiedFile(row.getId(), file));
+                    }
+                    lastMatchedPath = row.getLocalPath();
+                    file = fileIterator.hasNext() ? fileIterator.next() : null;
+                    row = rowIterator.hasNext() ? rowIterator.next() : null;
+                }
+            }
+        }
+
+        return new ScanResult(unchanged, modified, missingTrackIds, newFiles);
+    }
+
+    private boolean isUnchanged(TrackRepository.TrackFileView row, ScannedFile file) {
+        return row.getFileSize() != null && row.getFileSize() == file.size()
+                && row.getFileModifiedMillis() != null && row.getFileModifiedMillis() == file.modifiedMillis();
+    }
+
+    public record ModifiedFile(Long trackId, ScannedFile file) {}
+
+    public record ScanResult(
+            int unchanged,
+            List<ModifiedFile> modified,
+            List<Long> missingTrackIds,
+            List<ScannedFile> newFiles
+    ) {}
+}
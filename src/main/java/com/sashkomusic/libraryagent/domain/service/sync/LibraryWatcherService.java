@@ -7,13 +7,25 @@ import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @Slf4j
@@ -21,16 +33,24 @@ import java.util.concurrent.CompletableFuture;
 public class LibraryWatcherService {
 
     private final TrackTagSyncService syncService;
+    private final HotDirectoryRegistry hotDirectories;
 
     @Value("${watch.enabled:true}")
     private boolean watchEnabled;
 
+    @Value("${watch.hybrid.enabled:false}")
+    private boolean hybridEnabled;
+
     @Value("${library.root-path}")
     private String libraryPath;
 
     private DirectoryWatcher watcher;
     private CompletableFuture<Void> watchFuture;
 
+    // Last seen modification time per audio file, used by cold directory polling
+    private final Map<Path, Long> knownModifiedTimes = new ConcurrentHashMap<>();
+    private volatile boolean hybridReady;
+
     private static final Set<String> AUDIO_EXTENSIONS = Set.of(
             "mp3", "flac", "wav", "m4a", "aac", "ogg", "wma", "alac"
     );
@@ -42,6 +62,12 @@ public class LibraryWatcherService {
             return;
         }
 
+        if (hybridEnabled) {
+            // Seeding walks the whole tree (stat only), so keep it off the startup path
+            CompletableFuture.runAsync(this::startHybridWatching);
+            return;
+        }
+
         try {
             Path rootPath = Paths.get(libraryPath);
             log.info("Initializing directory watcher for library: {}", rootPath);
@@ -64,6 +90,149 @@ public class LibraryWatcherService {
         }
     }
 
+    /**
+     * Hybrid mode: native watches only for the hot directories (within the watch budget),
+     * everything else is covered by low-frequency stat polling.
+     */
+    private void startHybridWatching() {
+        try {
+            Path rootPath = Paths.get(libraryPath);
+            log.info("Initializing hybrid watching for library: {} (budget: {} directories)",
+                    rootPath, hotDirectories.getMaxWatchedDirectories());
+
+            Map<Path, Long> directoryActivity = new HashMap<>();
+            scanAudioFiles(rootPath, (file, modifiedMillis) -> {
+                knownModifiedTimes.put(file, modifiedMillis);
+                directoryActivity.merge(file.getParent(), modifiedMillis, Math::max);
+            });
+
+            // Seed the hot set with the most recently modified directories
+            directoryActivity.entrySet().stream()
+                    .sorted(Map.Entry.<Path, Long>comparingByValue().reversed())
+                    .limit(hotDirectories.getMaxWatchedDirectories())
+                    .sorted(Map.Entry.comparingByValue())
+                    .forEach(entry -> hotDirectories.promote(entry.getKey(), entry.getValue()));
+            hotDirectories.demoteExpired();
+            hotDirectories.consumeChanges();
+
+            rebuildWatcher();
+            hybridReady = true;
+
+            log.info("Hybrid watching started: {} hot directories watched natively, {} directories polled",
+                    hotDirectories.size(), directoryActivity.size() - hotDirectories.size());
+
+        } catch (Exception e) {
+            log.error("Failed to start hybrid watching: {}", e.getMessage(), e);
+            log.warn("Falling back to scheduled sync only");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${watch.hybrid.rebalance-interval:60000}")
+    public void rebalanceHotDirectories() {
+        if (!isHybridActive()) {
+            return;
+        }
+
+        hotDirectories.demoteExpired();
+
+        if (hotDirectories.consumeChanges()) {
+            log.debug("Hot directory set changed, re-registering native watches");
+            rebuildWatcher();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${watch.hybrid.cold-poll-interval:900000}",
+            initialDelayString = "${watch.hybrid.cold-poll-interval:900000}")
+    public void pollColdDirectories() {
+        if (!isHybridActive()) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Set<Path> hot = hotDirectories.snapshot();
+        Set<Path> seen = new HashSet<>();
+        List<Path> modified = new ArrayList<>();
+
+        try {
+            scanAudioFiles(Paths.get(libraryPath), (file, modifiedMillis) -> {
+                seen.add(file);
+                Long previous = knownModifiedTimes.put(file, modifiedMillis);
+                if (previous != null && previous != modifiedMillis && !hot.contains(file.getParent())) {
+                    modified.add(file);
+                }
+            });
+        } catch (IOException e) {
+            log.error("Cold directory poll failed: {}", e.getMessage());
+            return;
+        }
+
+        knownModifiedTimes.keySet().retainAll(seen);
+
+        for (Path file : modified) {
+            try {
+                log.debug("Cold poll detected modification: {}", file.getFileName());
+                syncService.syncTrackByPath(file);
+                hotDirectories.promoteParentOf(file);
+            } catch (Exception e) {
+                log.error("Error syncing polled file {}: {}", file, e.getMessage());
+            }
+        }
+
+        log.info("Cold poll completed in {}ms: {} files checked, {} modified",
+                System.currentTimeMillis() - startTime, seen.size(), modified.size());
+    }
+
+    private synchronized void rebuildWatcher() {
+        closeWatcher();
+
+        List<Path> paths = hotDirectories.snapshot().stream()
+                .filter(Files::isDirectory)
+                .sorted(Comparator.comparing(Path::toString))
+                .toList();
+
+        if (paths.isEmpty()) {
+            log.debug("No hot directories to watch");
+            return;
+        }
+
+        try {
+            watcher = DirectoryWatcher.builder()
+                    .paths(paths)
+                    .listener(this::handleFileEvent)
+                    .fileHashing(false)
+                    .build();
+
+            watchFuture = watcher.watchAsync();
+            log.debug("Registered native watches for {} hot directories", paths.size());
+
+        } catch (IOException e) {
+            log.error("Failed to register watches for hot directories: {}", e.getMessage(), e);
+        }
+    }
+
+    private void scanAudioFiles(Path root, AudioFileVisitor visitor) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && isAudioFile(file)) {
+                    visitor.visit(file.toAbsolutePath().normalize(), attrs.lastModifiedTime().toMillis());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                log.trace("Cannot access {}: {}", file, exc.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface AudioFileVisitor {
+        void visit(Path file, long modifiedMillis);
+    }
+
     /**
      * Handle file system events
      * Only processes MODIFY events for audio files
@@ -84,6 +253,10 @@ public class LibraryWatcherService {
 
             syncService.syncTrackByPath(changedFile);
 
+            if (hybridEnabled) {
+                hotDirectories.promoteParentOf(changedFile);
+            }
+
         } catch (Exception e) {
             log.error("Error handling file event for {}: {}", event.path(), e.getMessage());
         }
@@ -101,8 +274,17 @@ public class LibraryWatcherService {
         return AUDIO_EXTENSIONS.contains(extension);
     }
 
+    private boolean isHybridActive() {
+        return watchEnabled && hybridEnabled && hybridReady;
+    }
+
     @PreDestroy
     public void stopWatching() {
+        hybridReady = false;
+        closeWatcher();
+    }
+
+    private synchronized void closeWatcher() {
         if (watcher != null) {
             try {
                 log.info("Stopping directory watcher...");
@@ -115,6 +297,9 @@ public class LibraryWatcherService {
                 log.info("Directory watcher stopped successfully");
             } catch (IOException e) {
                 log.error("Error stopping directory watcher: {}", e.getMessage());
+            } finally {
+                watcher = null;
+                watchFuture = null;
             }
         }
     }
@@ -0,0 +1,139 @@
+package com.sashkomusic.libraryagent.domain.service.sync;
+
+import com.sashkomusic.libraryagent.domain.entity.AgentState;
+import com.sashkomusic.libraryagent.domain.model.ScannedFile;
+import com.sashkomusic.libraryagent.domain.repository.AgentStateRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Picks up edits made while the agent was down. A clean shutdown records its timestamp,
+ * on boot only files modified after it are re-synced (everything after an unclean shutdown).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class StartupCatchUpSyncService {
+
+    static final String CLEAN_SHUTDOWN_KEY = "sync.clean-shutdown-at";
+
+    private final AgentStateRepository agentStateRepository;
+    private final LibraryFileWalker fileWalker;
+    private final TrackTagSyncService syncService;
+
+    @Value("${sync.catch-up.enabled:true}")
+    private boolean catchUpEnabled;
+
+    @Value("${sync.catch-up.safety-margin:60000}")
+    private long safetyMarginMillis;
+
+    @Value("${sync.library-path:/Users/okravch/my/sm/lib}")
+    private String libraryPath;
+
+    // Threshold to persist on shutdown while catch-up has not finished yet (null = full set)
+    private volatile Long pendingThreshold;
+    private volatile boolean catchUpRunning;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!catchUpEnabled) {
+            log.info("Startup catch-up sync is disabled");
+            return;
+        }
+
+        Long lastCleanShutdown = agentStateRepository.findById(CLEAN_SHUTDOWN_KEY)
+                .map(AgentState::getValue)
+                .map(Long::parseLong)
+                .orElse(null);
+
+        // Clear the marker, so a crash from now on is detected on the next boot
+        saveCleanShutdownMarker(null);
+
+        Long threshold = lastCleanShutdown != null ? lastCleanShutdown - safetyMarginMillis : null;
+        pendingThreshold = threshold;
+        catchUpRunning = true;
+
+        CompletableFuture.runAsync(() -> runCatchUp(threshold));
+    }
+
+    private void runCatchUp(Long threshold) {
+        if (threshold != null) {
+            log.info("Starting catch-up sync for files modified since last clean shutdown ({})",
+                    Instant.ofEpochMilli(threshold));
+        } else {
+            log.info("No clean shutdown recorded, starting full catch-up sync");
+        }
+
+        long startTime = System.currentTimeMillis();
+        int updated = 0;
+        int errors = 0;
+
+        try {
+            List<ScannedFile> candidates = fileWalker.walk(
+                    Paths.get(libraryPath), threshold != null ? threshold : Long.MIN_VALUE);
+
+            log.info("Catch-up walk found {} candidate files in {}ms",
+                    candidates.size(), System.currentTimeMillis() - startTime);
+
+            for (ScannedFile file : candidates) {
+                try {
+                    if (syncService.syncTrackByPath(file.path())) {
+                        updated++;
+                    }
+                } catch (Exception e) {
+                    errors++;
+                    log.error("Catch-up sync failed for {}: {}", file.path(), e.getMessage());
+                }
+            }
+
+            pendingThreshold = null;
+            catchUpRunning = false;
+
+            log.info("Catch-up sync completed in {}ms. Candidates: {}, Updated: {}, Errors: {}",
+                    System.currentTimeMillis() - startTime, candidates.size(), updated, errors);
+
+        } catch (Exception e) {
+            log.error("Catch-up sync failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void recordCleanShutdown() {
+        if (!catchUpEnabled) {
+            return;
+        }
+
+        try {
+            if (catchUpRunning) {
+                // Catch-up didn't finish - keep the old window so the next boot repeats it
+                Long threshold = pendingThreshold;
+                saveCleanShutdownMarker(threshold != null ? threshold + safetyMarginMillis : null);
+                log.info("Catch-up sync interrupted by shutdown, keeping previous sync window");
+            } else {
+                saveCleanShutdownMarker(System.currentTimeMillis());
+                log.info("Recorded clean shutdown timestamp");
+            }
+        } catch (Exception e) {
+            log.error("Failed to record clean shutdown: {}", e.getMessage());
+        }
+    }
+
+    private void saveCleanShutdownMarker(Long epochMillis) {
+        AgentState state = agentStateRepository.findById(CLEAN_SHUTDOWN_KEY)
+                .orElseGet(() -> new AgentState(CLEAN_SHUTDOWN_KEY, null));
+        state.setValue(epochMillis != null ? String.valueOf(epochMillis) : null);
+        state.setUpdatedAt(LocalDateTime.now());
+        agentStateRepository.save(state);
+    }
+}
@@ -1,12 +1,20 @@
 package com.sashkomusic.libraryagent.domain.service.sync;
 
 import com.sashkomusic.libraryagent.domain.entity.*;
+import com.sashkomusic.libraryagent.domain.model.ScannedFile;
 import com.sashkomusic.libraryagent.domain.model.TagChange;
 import com.sashkomusic.libraryagent.domain.model.TrackTagChanges;
-import com.sashkomusic.libraryagent.domain.repository.ArtistRepository;
-import com.sashkomusic.libraryagent.domain.repository.LabelRepository;
+import com.sashkomusic.libraryagent.domain.repository.ReleaseRepository;
 import com.sashkomusic.libraryagent.domain.repository.TrackRepository;
+import com.sashkomusic.libraryagent.domain.service.DictionaryService;
+import com.sashkomusic.libraryagent.domain.service.analysis.AnalysisScheduler;
+import com.sashkomusic.libraryagent.domain.service.mixing.HarmonicMixingIndex;
+import com.sashkomusic.libraryagent.domain.service.tag.TrackTagStore;
+import com.sashkomusic.libraryagent.domain.service.utils.AfterCommit;
+import com.sashkomusic.libraryagent.domain.service.utils.AudioFingerprinter;
 import com.sashkomusic.libraryagent.domain.service.utils.AudioTagExtractor;
+import com.sashkomusic.libraryagent.domain.service.utils.OptimisticRetry;
+import com.sashkomusic.libraryagent.domain.service.utils.PathLockManager;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -14,13 +22,15 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -32,12 +42,29 @@ public class TrackTagSyncService {
     private final TrackRepository trackRepository;
     private final AudioTagExtractor tagExtractor;
     private final TagChangeBatchCollector batchCollector;
-    private final LabelRepository labelRepository;
-    private final ArtistRepository artistRepository;
+    private final DictionaryService dictionaryService;
+    private final TrackTagStore tagStore;
+    private final ReleaseRepository releaseRepository;
+    private final LibraryScanner libraryScanner;
+    private final HarmonicMixingIndex harmonicIndex;
+    private final AudioFingerprinter fingerprinter;
+    private final AnalysisScheduler analysisScheduler;
+    private final PathLockManager pathLocks;
+    private final OptimisticRetry optimisticRetry;
 
     @Value("${sync.enabled:true}")
     private boolean syncEnabled;
 
+    /**
+     * database - iterate track rows and stat each path;
+     * filesystem - sorted directory walk merge-joined against the tracks table
+     */
+    @Value("${sync.engine:database}")
+    private String syncEngine;
+
+    @Value("${sync.continuous.enabled:false}")
+    private boolean continuousSyncEnabled;
+
     @Value("${sync.library-path:/Users/okravch/my/sm/lib}")
     private String libraryPath;
 
@@ -45,24 +72,47 @@ public class TrackTagSyncService {
             TrackRepository trackRepository,
             AudioTagExtractor tagExtractor,
             TagChangeBatchCollector batchCollector,
-            LabelRepository labelRepository,
-            ArtistRepository artistRepository
+            DictionaryService dictionaryService,
+            TrackTagStore tagStore,
+            ReleaseRepository releaseRepository,
+            LibraryScanner libraryScanner,
+            HarmonicMixingIndex harmonicIndex,
+            AudioFingerprinter fingerprinter,
+            AnalysisScheduler analysisScheduler,
+            PathLockManager pathLocks,
+            OptimisticRetry optimisticRetry
     ) {
         this.trackRepository = trackRepository;
         this.tagExtractor = tagExtractor;
         this.batchCollector = batchCollector;
-        this.labelRepository = labelRepository;
-        this.artistRepository = artistRepository;
+        this.dictionaryService = dictionaryService;
+        this.tagStore = tagStore;
+        this.releaseRepository = releaseRepository;
+        this.libraryScanner = libraryScanner;
+        this.harmonicIndex = harmonicIndex;
+        this.fingerprinter = fingerprinter;
+        this.analysisScheduler = analysisScheduler;
+        this.pathLocks = pathLocks;
+        this.optimisticRetry = optimisticRetry;
     }
 
     @Scheduled(fixedDelayString = "${sync.interval:300000}")
-    @Transactional
     public void syncTracksFromFiles() {
         if (!syncEnabled) {
             log.debug("Track tag sync is disabled");
             return;
         }
 
+        if (continuousSyncEnabled) {
+            log.debug("Continuous sync is enabled, skipping full sync pass");
+            return;
+        }
+
+        if ("filesystem".equalsIgnoreCase(syncEngine)) {
+            syncFromFilesystemScan();
+            return;
+        }
+
         log.info("Starting track tag synchronization from library: {}", libraryPath);
         long startTime = System.currentTimeMillis();
 
@@ -77,7 +127,7 @@ public class TrackTagSyncService {
 
             for (Track track : allTracks) {
                 try {
-                    if (syncTrackTags(track)) {
+                    if (isModifiedOnDisk(track) && syncTrackById(track.getId())) {
                         updatedTracks++;
                     }
                 } catch (Exception e) {
@@ -95,6 +145,170 @@ public class TrackTagSyncService {
         }
     }
 
+    /**
+     * Filesystem-first full sync: only files classified as modified or new by the
+     * merge-join scan go on to tag parsing.
+     */
+    private void syncFromFilesystemScan() {
+        log.info("Starting filesystem scan sync of library: {}", libraryPath);
+        long startTime = System.currentTimeMillis();
+
+        int updatedTracks = 0;
+        int attachedFiles = 0;
+        int relinkedFiles = 0;
+        int errorTracks = 0;
+
+        try {
+            LibraryScanner.ScanResult scan = libraryScanner.scan(Paths.get(libraryPath));
+            Map<String, Long> missingByFingerprint = missingByFingerprint(scan.missingTrackIds());
+
+            for (LibraryScanner.ModifiedFile modified : scan.modified()) {
+                try {
+                    if (syncTrackById(modified.trackId())) {
+                        updatedTracks++;
+                    }
+                } catch (Exception e) {
+                    errorTracks++;
+                    log.error("Failed to sync track {}: {}", modified.file().path(), e.getMessage());
+                }
+            }
+
+            for (ScannedFile newFile : scan.newFiles()) {
+                try {
+                    if (relinkMovedFile(newFile, missingByFingerprint)) {
+                        relinkedFiles++;
+                    } else if (optimisticRetry.inTransaction("attach-file", () -> attachNewFile(newFile))) {
+                        attachedFiles++;
+                    }
+                } catch (Exception e) {
+                    errorTracks++;
+                    log.error("Failed to attach new file {}: {}", newFile.path(), e.getMessage());
+                }
+            }
+
+            int missing = scan.missingTrackIds().size() - relinkedFiles;
+            if (missing > 0) {
+                log.warn("{} tracks point to files that no longer exist: {}", missing, scan.missingTrackIds());
+            }
+
+            long duration = System.currentTimeMillis() - startTime;
+            log.info("Filesystem sync completed in {}ms. Unchanged: {}, Updated: {}, Attached: {}, Relinked: {}, Missing: {}, Errors: {}",
+                    duration, scan.unchanged(), updatedTracks, attachedFiles, relinkedFiles, missing, errorTracks);
+
+        } catch (Exception e) {
+            log.error("Filesystem scan sync failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private Map<String, Long> missingByFingerprint(List<Long> missingTrackIds) {
+        Map<String, Long> byFingerprint = new HashMap<>();
+        if (!missingTrackIds.isEmpty()) {
+            for (Track track : trackRepository.findAllById(missingTrackIds)) {
+                if (track.getAudioFingerprint() != null) {
+                    byFingerprint.put(track.getAudioFingerprint(), track.getId());
+                }
+            }
+        }
+        return byFingerprint;
+    }
+
+    /**
+     * A new file with the same audio as a track whose file disappeared is that track, moved or renamed -
+     * relink it instead of attaching a new track (keeps its analysis and id).
+     */
+    private boolean relinkMovedFile(ScannedFile file, Map<String, Long> missingByFingerprint) {
+        if (missingByFingerprint.isEmpty()) {
+            return false;
+        }
+
+        String fingerprint = fingerprinter.fingerprint(file.path());
+        Long trackId = fingerprint != null ? missingByFingerprint.remove(fingerprint) : null;
+        if (trackId == null) {
+            return false;
+        }
+
+        return optimisticRetry.inTransaction("relink-file", () -> trackRepository.findById(trackId)
+                .map(track -> {
+                    log.info("Relinked moved file for track {}: {} -> {}", track.getId(), track.getLocalPath(), file.path());
+                    track.setLocalPath(file.path().toString());
+                    syncTrackTags(track);
+                    trackRepository.save(track);
+                    return true;
+                })
+                .orElse(false));
+    }
+
+    /**
+     * Attaches a file that exists on disk but not in the DB to the release owning its directory.
+     */
+    private boolean attachNewFile(ScannedFile file) {
+        Path audioFile = file.path();
+        Release release = releaseRepository.findFirstByDirectoryPath(audioFile.getParent().toString()).orElse(null);
+
+        if (release == null) {
+            log.debug("New file outside of known releases, skipping: {}", audioFile);
+            return false;
+        }
+
+        Map<String, String> fileTags = tagExtractor.extractAllTags(audioFile);
+        if (fileTags.isEmpty()) {
+            log.debug("No tags found in new file: {}", audioFile.getFileName());
+            return false;
+        }
+
+        String title = fileTags.getOrDefault("TIT2", audioFile.getFileName().toString());
+        Track track = new Track(title, null);
+        track.setLocalPath(audioFile.toString());
+        fileTags.forEach((tagName, tagValue) -> tagStore.setTag(track, tagName, tagValue));
+        track.setTagsDigest(AudioTagExtractor.digest(fileTags));
+        track.setFileStats(file.size(), file.modifiedMillis());
+        track.setAudioFingerprint(fingerprinter.fingerprint(audioFile));
+
+        String trackNumber = fileTags.get("TRCK");
+        if (trackNumber != null) {
+            updateTrackNumber(track, trackNumber);
+        }
+
+        String artistName = fileTags.getOrDefault("TPE1", release.getArtists().stream()
+                .findFirst()
+                .map(Artist::getName)
+                .orElse(null));
+        if (artistName != null) {
+            updateTrackArtist(track, artistName);
+        }
+
+        release.addTrack(track);
+        Track saved = trackRepository.save(track);
+        AfterCommit.run(() -> harmonicIndex.onTagsChanged(saved));
+
+        log.info("Attached new file to release '{}': {}", release.getTitle(), audioFile.getFileName());
+        return true;
+    }
+
+    /**
+     * One track per transaction, reloaded and re-merged if a listener updated it concurrently.
+     */
+    private boolean syncTrackById(Long trackId) {
+        return optimisticRetry.inTransaction("sync-track", () -> trackRepository.findById(trackId)
+                .map(this::syncTrackTags)
+                .orElse(false));
+    }
+
+    /**
+     * Cheap pre-check on the detached row so unchanged files never open a transaction.
+     */
+    private boolean isModifiedOnDisk(Track track) {
+        if (track.getLocalPath() == null || track.getLocalPath().isEmpty()) {
+            return false;
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(Paths.get(track.getLocalPath()), BasicFileAttributes.class);
+            return !track.hasFileStats(attrs.size(), attrs.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
     @Transactional
     public boolean syncTrackTags(Track track) {
         if (track.getLocalPath() == null || track.getLocalPath().isEmpty()) {
@@ -110,19 +324,31 @@ public class TrackTagSyncService {
 
         try {
             // Check if file was modified since last sync
-            FileTime lastModified = Files.getLastModifiedTime(audioFile);
-            LocalDateTime fileModifiedTime = LocalDateTime.ofInstant(
-                    lastModified.toInstant(),
-                    ZoneId.systemDefault()
-            );
-
-            // Skip if file hasn't been modified
-            LocalDateTime lastSyncTime = getLastSyncTime(track);
-            if (lastSyncTime != null && fileModifiedTime.isBefore(lastSyncTime)) {
+            BasicFileAttributes attrs = Files.readAttributes(audioFile, BasicFileAttributes.class);
+            long fileSize = attrs.size();
+            long fileModifiedMillis = attrs.lastModifiedTime().toMillis();
+
+            if (track.hasFileStats(fileSize, fileModifiedMillis)) {
                 log.trace("Skipping unchanged file: {}", audioFile.getFileName());
                 return false;
             }
 
+            // Tracks synced before digests existed: fall back to the tag sync timestamps
+            if (track.getTagsDigest() == null) {
+                LocalDateTime fileModifiedTime = LocalDateTime.ofInstant(
+                        attrs.lastModifiedTime().toInstant(),
+                        ZoneId.systemDefault()
+                );
+                LocalDateTime lastSyncTime = tagStore.lastSyncTime(track).orElse(null);
+                if (lastSyncTime != null && fileModifiedTime.isBefore(lastSyncTime)) {
+                    log.trace("Skipping unchanged file: {}", audioFile.getFileName());
+                    track.setFileStats(fileSize, fileModifiedMillis);
+                    return false;
+                }
+            }
+
+            refreshAudioFingerprint(track, audioFile);
+
             // Extract tags from file
             Map<String, String> fileTags = tagExtractor.extractAllTags(audioFile);
 
@@ -131,13 +357,26 @@ public class TrackTagSyncService {
                 return false;
             }
 
+            // File touched without tag changes (play counts, cue markers) - skip loading TrackTags
+            String digest = AudioTagExtractor.digest(fileTags);
+            if (digest.equals(track.getTagsDigest())) {
+                log.trace("Tags unchanged (digest match): {}", audioFile.getFileName());
+                track.setFileStats(fileSize, fileModifiedMillis);
+                return false;
+            }
+
             // Merge tags (smart update - only changed tags) and collect changes
             TrackTagChanges trackChanges = mergeTagsAndCollectChanges(track, fileTags, audioFile);
+            track.setTagsDigest(digest);
+            recordFileStats(track);
 
             if (trackChanges.hasChanges()) {
                 trackRepository.save(track);
-
-                batchCollector.collectChanges(trackChanges);
+                // Published once the merge commits - a rolled-back or retried attempt must not report its changes
+                AfterCommit.run(() -> {
+                    harmonicIndex.onTagsChanged(track);
+                    batchCollector.collectChanges(trackChanges);
+                });
 
                 log.debug("Synced {} tag changes for track: {}",
                         trackChanges.getChanges().size(), track.getTitle());
@@ -152,6 +391,35 @@ public class TrackTagSyncService {
         }
     }
 
+    /**
+     * Tag edits keep the fingerprint; a changed fingerprint means new audio, which needs re-analysis.
+     */
+    private void refreshAudioFingerprint(Track track, Path audioFile) {
+        String fingerprint = fingerprinter.fingerprint(audioFile);
+        if (fingerprint == null || fingerprint.equals(track.getAudioFingerprint())) {
+            return;
+        }
+
+        boolean audioChanged = track.getAudioFingerprint() != null;
+        track.setAudioFingerprint(fingerprint);
+        if (audioChanged) {
+            log.info("Audio changed for track {}, scheduling re-analysis: {}", track.getId(), audioFile.getFileName());
+            analysisScheduler.request(List.of(track), AnalysisScheduler.AUDIO_CHANGED_PRIORITY);
+        }
+    }
+
+    /**
+     * Re-stats the file after merging, so the next pass can skip it (a later rename keeps size and mtime).
+     */
+    private void recordFileStats(Track track) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(Paths.get(track.getLocalPath()), BasicFileAttributes.class);
+            track.setFileStats(attrs.size(), attrs.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            log.debug("Could not stat {}: {}", track.getLocalPath(), e.getMessage());
+        }
+    }
+
     private TrackTagChanges mergeTagsAndCollectChanges(Track track, Map<String, String> fileTags, Path audioFile) {
         String artistName = track.getArtists().stream()
                 .findFirst()
@@ -178,7 +446,7 @@ public class TrackTagSyncService {
 
             if (!Objects.equals(currentValue, newValue)) {
                 trackChanges.addChange(new TagChange(tagName, currentValue, newValue));
-                track.setTag(tagName, newValue);
+                tagStore.setTag(track, tagName, newValue);
 
                 // Sync RATING and RATING WMP tags
                 if (isRatingTag(tagName) && newValue != null && !newValue.isEmpty()) {
@@ -234,7 +502,7 @@ public class TrackTagSyncService {
 
         if (!Objects.equals(currentOtherValue, newValue)) {
             trackChanges.addChange(new TagChange(otherTagName, currentOtherValue, newValue));
-            track.setTag(otherTagName, newValue);
+            tagStore.setTag(track, otherTagName, newValue);
             log.debug("Synced {} to match {}: '{}'", otherTagName, changedTag, newValue);
         }
     }
@@ -269,13 +537,7 @@ public class TrackTagSyncService {
             return false;
         }
 
-        // Find or create artist
-        Artist newArtist = artistRepository.findByName(newArtistName).orElse(null);
-        if (newArtist == null) {
-            log.info("Creating new artist: '{}'", newArtistName);
-            newArtist = new Artist(newArtistName);
-            newArtist = artistRepository.save(newArtist);
-        }
+        Artist newArtist = dictionaryService.artist(newArtistName);
 
         // Remove old artists and add new one
         track.getArtists().clear();
@@ -310,43 +572,83 @@ public class TrackTagSyncService {
         }
     }
 
+    /**
+     * Only decides the new name - the move itself runs after the merge commits (see renameAfterCommit),
+     * so a rolled-back or retried attempt never leaves the file renamed under a stale local_path.
+     */
     private void renameFileIfNeeded(Track track, Path currentPath, String artistName) {
-        try {
-            String extension = getExtension(currentPath);
-            Integer trackNumber = track.getTrackNumber();
-            String title = track.getTitle();
+        String extension = getExtension(currentPath);
+        Integer trackNumber = track.getTrackNumber();
+        String title = track.getTitle();
 
-            if (trackNumber == null || title == null || title.isEmpty()) {
-                log.warn("Cannot rename file - missing track number or title");
-                return;
-            }
+        if (trackNumber == null || title == null || title.isEmpty()) {
+            log.warn("Cannot rename file - missing track number or title");
+            return;
+        }
 
-            String newFilename = String.format("%02d. %s - %s.%s",
-                    trackNumber,
-                    sanitizeFilename(artistName),
-                    sanitizeFilename(title),
-                    extension);
+        String newFilename = String.format("%02d. %s - %s.%s",
+                trackNumber,
+                sanitizeFilename(artistName),
+                sanitizeFilename(title),
+                extension);
 
-            Path newPath = currentPath.getParent().resolve(newFilename);
+        Path newPath = currentPath.getParent().resolve(newFilename);
 
-            if (currentPath.equals(newPath)) {
-                log.trace("File already has correct name: {}", newFilename);
-                return;
-            }
+        if (currentPath.equals(newPath)) {
+            log.trace("File already has correct name: {}", newFilename);
+            return;
+        }
 
-            if (Files.exists(newPath)) {
-                log.warn("Cannot rename - file already exists: {}", newFilename);
-                return;
-            }
+        Long trackId = track.getId();
+        AfterCommit.run(() -> renameAfterCommit(trackId, currentPath, newPath));
+    }
 
-            Files.move(currentPath, newPath, StandardCopyOption.ATOMIC_MOVE);
-            track.setLocalPath(newPath.toString());
+    /**
+     * Moves the file, then points the track at it in a transaction of its own. If the track no longer
+     * points at the old path (changed meanwhile), the move is undone.
+     */
+    private void renameAfterCommit(Long trackId, Path currentPath, Path newPath) {
+        try {
+            pathLocks.withFileLock(currentPath, () -> {
+                if (!moveFile(currentPath, newPath)) {
+                    return null;
+                }
 
-            log.info("Renamed file: {} -> {}", currentPath.getFileName(), newFilename);
+                boolean linked = optimisticRetry.inTransaction("rename-file", () -> trackRepository.findById(trackId)
+                        .filter(track -> currentPath.toString().equals(track.getLocalPath()))
+                        .map(track -> {
+                            track.setLocalPath(newPath.toString());
+                            return true;
+                        })
+                        .orElse(false));
+
+                if (linked) {
+                    log.info("Renamed file: {} -> {}", currentPath.getFileName(), newPath.getFileName());
+                } else {
+                    log.warn("Track {} moved on before rename of {}, undoing it", trackId, currentPath.getFileName());
+                    moveFile(newPath, currentPath);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            log.error("Failed to rename file {}: {}", currentPath.getFileName(), e.getCause().getMessage());
+        } catch (RuntimeException e) {
+            log.error("Failed to rename file {}: {}", currentPath.getFileName(), e.getMessage());
+        }
+    }
 
+    private boolean moveFile(Path currentPath, Path newPath) {
+        if (Files.exists(newPath)) {
+            log.warn("Cannot rename - file already exists: {}", newPath.getFileName());
+            return false;
+        }
+
+        try {
+            Files.move(currentPath, newPath, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
-            log.error("Failed to rename file {}: {}", currentPath.getFileName(), e.getMessage());
+            throw new UncheckedIOException(e);
         }
+        return true;
     }
 
     private String getExtension(Path path) {
@@ -376,39 +678,25 @@ public class TrackTagSyncService {
             return;
         }
 
-        Label label = labelRepository.findByName(labelName).orElse(null);
-
-        if (label == null) {
-            log.info("Creating new label: '{}'", labelName);
-            label = new Label(labelName);
-            label = labelRepository.save(label);
-        }
-
+        Label label = dictionaryService.label(labelName);
         String oldLabelName = release.getLabel() != null ? release.getLabel().getName() : "null";
         release.setLabel(label);
         log.info("Updated label for release '{}': '{}' -> '{}'", release.getTitle(), oldLabelName, labelName);
     }
 
-    private LocalDateTime getLastSyncTime(Track track) {
-        return track.getTags().stream()
-                .map(TrackTag::getLastSyncedAt)
-                .filter(Objects::nonNull)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
-    }
-
-    @Transactional
     public boolean syncTrackByPath(Path filePath) {
         try {
-            Track track = trackRepository.findByLocalPath(filePath.toString()).orElse(null);
+            return optimisticRetry.inTransaction("sync-track", () -> {
+                Track track = trackRepository.findByLocalPath(filePath.toString()).orElse(null);
 
-            if (track == null) {
-                log.debug("No track found for path: {}", filePath);
-                return false;
-            }
+                if (track == null) {
+                    log.debug("No track found for path: {}", filePath);
+                    return false;
+                }
 
-            log.debug("File watcher triggered sync for: {}", filePath.getFileName());
-            return syncTrackTags(track);
+                log.debug("File watcher triggered sync for: {}", filePath.getFileName());
+                return syncTrackTags(track);
+            });
 
         } catch (Exception e) {
             log.error("Failed to sync track by path {}: {}", filePath, e.getMessage());
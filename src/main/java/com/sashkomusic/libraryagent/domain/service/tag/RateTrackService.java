@@ -2,15 +2,24 @@ package com.sashkomusic.libraryagent.domain.service.tag;
 
 import com.sashkomusic.libraryagent.domain.entity.Track;
 import com.sashkomusic.libraryagent.domain.repository.TrackRepository;
+import com.sashkomusic.libraryagent.domain.service.sync.HotDirectoryRegistry;
 import com.sashkomusic.libraryagent.domain.service.utils.AudioTagExtractor;
+import com.sashkomusic.libraryagent.domain.service.utils.OptimisticRetry;
+import com.sashkomusic.libraryagent.domain.service.utils.PathLockManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -20,10 +29,17 @@ public class RateTrackService {
     private final TrackRepository trackRepository;
     private final AudioTagExtractor audioTagExtractor;
     private final DjTagWriter djTagWriter;
+    private final HotDirectoryRegistry hotDirectories;
+    private final PathLockManager pathLocks;
+    private final OptimisticRetry optimisticRetry;
+    private final TrackTagStore tagStore;
 
     public record RateResult(boolean success, String message) {}
 
-    @Transactional
+    /**
+     * Each change runs as DB phase (short transaction) -> file phase (no connection held).
+     * If the file write fails, the DB change is reverted so the DB never claims a tag the file doesn't have.
+     */
     public RateResult rateTrack(Long trackId, int rating) {
         log.info("Rating track id={} with rating={}", trackId, rating);
 
@@ -36,101 +52,166 @@ public class RateTrackService {
             return new RateResult(false, "трек не знайдено");
         }
 
-        Path audioFile = track.getLocalPath() != null ? Paths.get(track.getLocalPath()) : null;
+        Path audioFile = audioFileOf(track);
         if (audioFile == null || !Files.exists(audioFile)) {
             return new RateResult(false, "файл не існує");
         }
 
-        int ratingWmp = convertStarsToWmpRating(rating);
-        track.setTag("RATING", String.valueOf(ratingWmp));
-        track.setTag("RATING WMP", String.valueOf(ratingWmp));
+        String ratingWmp = String.valueOf(convertStarsToWmpRating(rating));
+        TagUpdate update = updateTrack("rate-track", trackId, List.of("RATING", "RATING WMP"), t -> {
+            tagStore.setTag(t, "RATING", ratingWmp);
+            tagStore.setTag(t, "RATING WMP", ratingWmp);
+        }).orElse(null);
+        if (update == null) {
+            return new RateResult(false, "трек не знайдено");
+        }
 
-        boolean success = audioTagExtractor.writeRating(audioFile, rating);
-        trackRepository.save(track);
+        boolean success = pathLocks.withFileLock(audioFile, () -> audioTagExtractor.writeRating(audioFile, rating));
+        hotDirectories.promoteParentOf(audioFile);
 
         if (success) {
             log.info("Successfully rated track: id={}, rating={}", trackId, rating);
             return new RateResult(true, "✅ рейтинг " + rating + "★");
         } else {
+            revert("rate-track", trackId, update);
             return new RateResult(false, "помилка запису рейтингу");
         }
     }
 
-    @Transactional
     public RateResult setEnergy(Long trackId, String energy) {
         log.info("Setting energy for track id={} to {}", trackId, energy);
 
-        Track track = trackRepository.findById(trackId).orElse(null);
-        if (track == null) {
+        TagUpdate update = updateTrack("set-energy", trackId, List.of("DJ_ENERGY", "COMM"), t -> {
+            tagStore.setTag(t, "DJ_ENERGY", energy);
+            // Also add to COMM tag
+            tagStore.prependToTag(t, "COMM", energy);
+        }).orElse(null);
+        if (update == null) {
             return new RateResult(false, "трек не знайдено");
         }
 
-        track.setTag("DJ_ENERGY", energy);
-
-        Path audioFile = track.getLocalPath() != null ? Paths.get(track.getLocalPath()) : null;
-        if (audioFile != null && Files.exists(audioFile)) {
-            djTagWriter.writeDjEnergy(audioFile, energy);
-        }
-
-        // Also add to COMM tag
-        track.prependToTag("COMM", energy);
-        if (audioFile != null && Files.exists(audioFile)) {
-            djTagWriter.prependEnergy(audioFile, energy);
+        Path audioFile = update.audioFile();
+        boolean written = writeFile(audioFile, () -> {
+            boolean tagWritten = djTagWriter.writeDjEnergy(audioFile, energy);
+            return djTagWriter.prependEnergy(audioFile, energy) && tagWritten;
+        });
+        if (!written) {
+            revert("set-energy", trackId, update);
+            return new RateResult(false, "помилка запису energy");
         }
 
-        trackRepository.save(track);
         log.info("Successfully set energy for track: id={}, energy={}", trackId, energy);
         return new RateResult(true, "✅ energy " + energy);
     }
 
-    @Transactional
     public RateResult setFunction(Long trackId, String function) {
         log.info("Setting function for track id={} to {}", trackId, function);
 
-        Track track = trackRepository.findById(trackId).orElse(null);
-        if (track == null) {
+        TagUpdate update = updateTrack("set-function", trackId, List.of("DJ_FUNCTION", "COMM"), t -> {
+            tagStore.setTag(t, "DJ_FUNCTION", function);
+            // Also add to COMM tag
+            tagStore.prependToTag(t, "COMM", function);
+        }).orElse(null);
+        if (update == null) {
             return new RateResult(false, "трек не знайдено");
         }
 
-        track.setTag("DJ_FUNCTION", function);
-
-        Path audioFile = track.getLocalPath() != null ? Paths.get(track.getLocalPath()) : null;
-        if (audioFile != null && Files.exists(audioFile)) {
-            djTagWriter.writeDjFunction(audioFile, function);
+        Path audioFile = update.audioFile();
+        boolean written = writeFile(audioFile, () -> {
+            boolean tagWritten = djTagWriter.writeDjFunction(audioFile, function);
+            return djTagWriter.prependFunction(audioFile, function) && tagWritten;
+        });
+        if (!written) {
+            revert("set-function", trackId, update);
+            return new RateResult(false, "помилка запису function");
         }
 
-        // Also add to COMM tag
-        track.prependToTag("COMM", function);
-        if (audioFile != null && Files.exists(audioFile)) {
-            djTagWriter.prependFunction(audioFile, function);
-        }
-
-        trackRepository.save(track);
         log.info("Successfully set function for track: id={}, function={}", trackId, function);
         return new RateResult(true, "✅ function " + function);
     }
 
-    @Transactional
     public RateResult addComment(Long trackId, String comment) {
         log.info("Adding comment for track id={}: {}", trackId, comment);
 
-        Track track = trackRepository.findById(trackId).orElse(null);
-        if (track == null) {
+        TagUpdate update = updateTrack("add-comment", trackId, List.of("COMM"),
+                t -> tagStore.prependToTag(t, "COMM", comment)).orElse(null);
+        if (update == null) {
             return new RateResult(false, "трек не знайдено");
         }
 
-        track.prependToTag("COMM", comment);
-
-        Path audioFile = track.getLocalPath() != null ? Paths.get(track.getLocalPath()) : null;
-        if (audioFile != null && Files.exists(audioFile)) {
-            djTagWriter.prependCommentText(audioFile, comment);
+        Path audioFile = update.audioFile();
+        if (!writeFile(audioFile, () -> djTagWriter.prependCommentText(audioFile, comment))) {
+            revert("add-comment", trackId, update);
+            return new RateResult(false, "помилка запису коментаря");
         }
 
-        trackRepository.save(track);
         log.info("Successfully added comment for track: id={}", trackId);
         return new RateResult(true, "✅ коментар додано");
     }
 
+    /**
+     * DB phase: applies the change to a freshly loaded track in its own transaction, re-applied on a
+     * version conflict, and remembers the touched tags before/after for a possible revert.
+     * The stored tags digest is cleared - it described the file before this write, and a file later
+     * restored to those tags would otherwise match it and skip the sync merge.
+     */
+    private Optional<TagUpdate> updateTrack(String operation, Long trackId, List<String> tagNames,
+                                            Consumer<Track> change) {
+        return optimisticRetry.inTransaction(operation, () -> trackRepository.findById(trackId)
+                .map(track -> {
+                    Map<String, String> before = tagValues(track, tagNames);
+                    change.accept(track);
+                    track.setTagsDigest(null);
+                    return new TagUpdate(audioFileOf(track), before, tagValues(track, tagNames));
+                }));
+    }
+
+    /**
+     * Compensation for a failed file write: restores the previous values of tags that still hold
+     * what this change wrote (a newer change to the same tag is left alone).
+     */
+    private void revert(String operation, Long trackId, TagUpdate update) {
+        log.warn("File write failed for track id={}, reverting {} in database", trackId, update.before().keySet());
+        optimisticRetry.inTransaction(operation + "-revert", () -> {
+            trackRepository.findById(trackId).ifPresent(track -> {
+                update.before().forEach((tagName, previous) -> {
+                    if (!Objects.equals(track.getTag(tagName).orElse(null), update.after().get(tagName))) {
+                        return;
+                    }
+                    if (previous == null) {
+                        tagStore.removeTag(track, tagName);
+                    } else {
+                        tagStore.setTag(track, tagName, previous);
+                    }
+                });
+                track.setTagsDigest(null);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * File phase - no transaction open. A missing file is not a failure: the change lives in the DB only.
+     */
+    private boolean writeFile(Path audioFile, BooleanSupplier write) {
+        if (audioFile == null) {
+            return true;
+        }
+        return pathLocks.withFileLock(audioFile, () -> !Files.exists(audioFile) || write.getAsBoolean());
+    }
+
+    private static Map<String, String> tagValues(Track track, List<String> tagNames) {
+        Map<String, String> values = new HashMap<>();
+        tagNames.forEach(tagName -> values.put(tagName, track.getTag(tagName).orElse(null)));
+        return values;
+    }
+
+    private static Path audioFileOf(Track track) {
+        return track.getLocalPath() != null ? Paths.get(track.getLocalPath()) : null;
+    }
+
+    private record TagUpdate(Path audioFile, Map<String, String> before, Map<String, String> after) {}
+
     private int convertStarsToWmpRating(int stars) {
         return switch (stars) {
             case 1 -> 51;
@@ -0,0 +1,75 @@
+package com.sashkomusic.libraryagent.domain.service.tag;
+
+import com.sashkomusic.libraryagent.domain.entity.Track;
+import com.sashkomusic.libraryagent.domain.entity.TrackTag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * All track tag writes go through here. The JSONB document on tracks is always written and is what
+ * every read uses; the tags.storage mode decides whether track_tags rows are kept alongside it:
+ * eav - rows are written too, jsonb - document only (rows are left as they were and nothing reads them).
+ */
+@Slf4j
+@Component
+public class TrackTagStore {
+
+    public enum Mode { EAV, JSONB }
+
+    private final Mode mode;
+
+    public TrackTagStore(@Value("${tags.storage:eav}") String storage) {
+        this.mode = parse(storage);
+        log.info("Tag storage mode: {}", mode == Mode.EAV ? "eav (track_tags rows + document)" : "jsonb (document only)");
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setTag(Track track, String tagName, String tagValue) {
+        track.setTag(tagName, tagValue);
+        if (mode == Mode.EAV) {
+            track.setTagRow(tagName, tagValue);
+        }
+    }
+
+    public void removeTag(Track track, String tagName) {
+        track.removeTag(tagName);
+        if (mode == Mode.EAV) {
+            track.removeTagRow(tagName);
+        }
+    }
+
+    public void prependToTag(Track track, String tagName, String newValue) {
+        String existingValue = track.getTag(tagName).orElse(null);
+        setTag(track, tagName, existingValue == null ? newValue : newValue + "; " + existingValue);
+    }
+
+    /**
+     * Latest per-tag sync time from the track_tags rows. Only meaningful in eav mode - in jsonb mode
+     * the rows aren't maintained, so there is no timestamp and callers must look at the file instead.
+     */
+    public Optional<LocalDateTime> lastSyncTime(Track track) {
+        if (mode != Mode.EAV) {
+            return Optional.empty();
+        }
+        return track.getTags().values().stream()
+                .map(TrackTag::getLastSyncedAt)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo);
+    }
+
+    private static Mode parse(String storage) {
+        try {
+            return Mode.valueOf(storage.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Unknown tags.storage '" + storage + "', expected eav or jsonb");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.sashkomusic.libraryagent.domain.service.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+
+/**
+ * Fingerprint of the audio payload only, so tag edits don't change it:
+ * MP3 - frames between the ID3v2 header(s) and the trailing APE/ID3v1 tags;
+ * FLAC - frames after the metadata blocks.
+ * The payload is hashed with xxHash64 straight from a memory-mapped file.
+ */
+@Component
+@Slf4j
+public class AudioFingerprinter {
+
+    private static final int ID3V2_HEADER = 10;
+    private static final int ID3V1_SIZE = 128;
+    private static final int APE_FOOTER = 32;
+
+    /**
+     * @return 16-char hex fingerprint, or null if the format isn't supported or the file can't be read
+     */
+    public String fingerprint(Path audioFile) {
+        String extension = extension(audioFile);
+        if (!"mp3".equals(extension) && !"flac".equals(extension)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(audioFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                log.debug("File too large to fingerprint: {}", audioFile);
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int[] range = "flac".equals(extension) ? flacPayload(buffer) : mp3Payload(buffer);
+            if (range == null || range[1] <= range[0]) {
+                log.debug("Could not locate audio payload in {}", audioFile);
+                return null;
+            }
+
+            long hash = XxHash64.hash(buffer, range[0], range[1] - range[0]);
+            return HexFormat.of().toHexDigits(hash);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Failed to fingerprint {}: {}", audioFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private int[] mp3Payload(ByteBuffer buffer) {
+        int start = 0;
+        int end = buffer.limit();
+
+        // ID3v2 tags (there may be more than one, e.g. after a botched re-tag)
+        while (end - start >= ID3V2_HEADER && startsWith(buffer, start, "ID3")) {
+            int flags = buffer.get(start + 5) & 0xFF;
+            int tagSize = syncsafe(buffer, start + 6);
+            start += ID3V2_HEADER + tagSize + ((flags & 0x10) != 0 ? ID3V2_HEADER : 0);
+        }
+
+        end = stripTrailingTags(buffer, start, end);
+        return new int[]{start, end};
+    }
+
+    private int[] flacPayload(ByteBuffer buffer) {
+        int position = 0;
+        // Some taggers put an ID3v2 tag in front of FLAC
+        if (startsWith(buffer, position, "ID3") && buffer.limit() >= ID3V2_HEADER) {
+            position += ID3V2_HEADER + syncsafe(buffer, position + 6);
+        }
+        if (!startsWith(buffer, position, "fLaC")) {
+            return null;
+        }
+        position += 4;
+
+        boolean last = false;
+        while (!last && position + 4 <= buffer.limit()) {
+            int header = buffer.get(position) & 0xFF;
+            last = (header & 0x80) != 0;
+            int length = ((buffer.get(position + 1) & 0xFF) << 16)
+                    | ((buffer.get(position + 2) & 0xFF) << 8)
+                    | (buffer.get(position + 3) & 0xFF);
+            position += 4 + length;
+        }
+
+        return new int[]{position, stripTrailingTags(buffer, position, buffer.limit())};
+    }
+
+    /**
+     * Trailing ID3v1 and APEv2 tags (in either order).
+     */
+    private int stripTrailingTags(ByteBuffer buffer, int start, int end) {
+        boolean stripped = true;
+        while (stripped) {
+            stripped = false;
+            if (end - start >= ID3V1_SIZE && startsWith(buffer, end - ID3V1_SIZE, "TAG")) {
+                end -= ID3V1_SIZE;
+                stripped = true;
+            }
+            if (end - start >= APE_FOOTER && startsWith(buffer, end - APE_FOOTER, "APETAGEX")) {
+                ByteBuffer footer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                int tagSize = footer.getInt(end - APE_FOOTER + 12); // items + footer
+                int flags = footer.getInt(end - APE_FOOTER + 20);
+                int total = tagSize + ((flags & 0x80000000) != 0 ? APE_FOOTER : 0);
+                if (total <= 0 || total > end - start) {
+                    break;
+                }
+                end -= total;
+                stripped = true;
+            }
+        }
+        return end;
+    }
+
+    private static int syncsafe(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7F) << 21)
+                | ((buffer.get(offset + 1) & 0x7F) << 14)
+                | ((buffer.get(offset + 2) & 0x7F) << 7)
+                | (buffer.get(offset + 3) & 0x7F);
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int offset, String magic) {
+        byte[] bytes = magic.getBytes(StandardCharsets.US_ASCII);
+        if (offset < 0 || offset + bytes.length > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int lastDot = name.lastIndexOf('.');
+        return lastDot == -1 ? "" : name.substring(lastDot + 1).toLowerCase();
+    }
+}
@@ -1,5 +1,6 @@
 package com.sashkomusic.libraryagent.domain.service.utils;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jaudiotagger.audio.AudioFile;
 import org.jaudiotagger.audio.AudioFileIO;
@@ -15,17 +16,35 @@ import org.jaudiotagger.tag.vorbiscomment.VorbisCommentTag;
 import org.jaudiotagger.tag.vorbiscomment.VorbisCommentTagField;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class AudioTagExtractor {
 
+    private final ParseFailureRegistry failureRegistry;
+
     public Map<String, String> extractAllTags(Path audioFile) {
         Map<String, String> tags = new HashMap<>();
 
+        BasicFileAttributes attrs = readAttributes(audioFile);
+        if (attrs != null && failureRegistry.isQuarantined(
+                audioFile, attrs.size(), attrs.lastModifiedTime().toMillis())) {
+            log.debug("Skipping quarantined file (failed to parse before): {}", audioFile);
+            return tags;
+        }
+
         try {
             AudioFile audio = AudioFileIO.read(audioFile.toFile());
             Tag tag = audio.getTag();
@@ -42,14 +61,46 @@ public class AudioTagExtractor {
             }
 
             log.debug("Extracted {} tags from: {}", tags.size(), audioFile.getFileName());
+            failureRegistry.recordSuccess(audioFile);
 
         } catch (Exception e) {
             log.error("Failed to extract tags from {}: {}", audioFile, e.getMessage());
+            if (attrs != null) {
+                failureRegistry.recordFailure(audioFile, attrs.size(), attrs.lastModifiedTime().toMillis(),
+                        e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
         }
 
         return tags;
     }
 
+    /**
+     * Canonical digest of an extracted tag map: entries sorted by name, so the same tags
+     * always hash the same regardless of frame order in the file.
+     */
+    public static String digest(Map<String, String> tags) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, String> entry : new TreeMap<>(tags).entrySet()) {
+                sha.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) 0);
+                sha.update(String.valueOf(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private BasicFileAttributes readAttributes(Path audioFile) {
+        try {
+            return Files.readAttributes(audioFile, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     private void extractStandardTags(Tag tag, Map<String, String> tags) {
         addTagIfPresent(tag, FieldKey.TITLE, "TIT2", tags);
         addTagIfPresent(tag, FieldKey.ARTIST, "TPE1", tags);
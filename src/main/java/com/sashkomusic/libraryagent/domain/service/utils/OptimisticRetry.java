@@ -0,0 +1,69 @@
+package com.sashkomusic.libraryagent.domain.service.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a unit of work in its own transaction and re-runs it when the commit loses a @Version race.
+ * The work has to load the entities it changes itself, so every attempt starts from fresh rows.
+ * Conflicts are counted per operation (library.optimistic.conflicts) to tune listener/sync parallelism.
+ */
+@Component
+@Slf4j
+public class OptimisticRetry {
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+
+    public OptimisticRetry(PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${optimistic-retry.max-attempts:3}") int maxAttempts) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public <T> T inTransaction(String operation, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                conflicts(operation).increment();
+                if (attempt >= maxAttempts) {
+                    log.warn("Giving up on {} after {} conflicting attempts", operation, attempt);
+                    throw e;
+                }
+                log.debug("Version conflict in {} (attempt {}), retrying", operation, attempt);
+                backOff(attempt);
+            }
+        }
+    }
+
+    private Counter conflicts(String operation) {
+        return Counter.builder("library.optimistic.conflicts")
+                .description("Commits rejected because another writer updated the row first")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20L * attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.sashkomusic.libraryagent.domain.service.utils;
+
+import com.sashkomusic.libraryagent.domain.entity.ParseFailure;
+import com.sashkomusic.libraryagent.domain.repository.ParseFailureRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persisted negative cache for files that fail to parse, keyed by (path, size, mtime).
+ * A known-bad file is skipped until it changes on disk or its exponential backoff expires.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ParseFailureRegistry {
+
+    private final ParseFailureRepository repository;
+
+    @Value("${parse-failures.backoff.initial:3600000}")
+    private long initialBackoffMillis;
+
+    @Value("${parse-failures.backoff.max:604800000}")
+    private long maxBackoffMillis;
+
+    private final Map<String, ParseFailure> failures = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public boolean isQuarantined(Path file, long size, long modifiedMillis) {
+        ensureLoaded();
+
+        ParseFailure failure = failures.get(file.toString());
+        if (failure == null || !failure.matches(size, modifiedMillis)) {
+            return false;
+        }
+        return LocalDateTime.now().isBefore(failure.getRetryAfter());
+    }
+
+    public synchronized void recordFailure(Path file, long size, long modifiedMillis, String error) {
+        ensureLoaded();
+
+        LocalDateTime now = LocalDateTime.now();
+        ParseFailure failure = failures.getOrDefault(file.toString(), new ParseFailure(file.toString()));
+
+        if (failure.getId() != null && failure.matches(size, modifiedMillis)) {
+            failure.setFailureCount(failure.getFailureCount() + 1);
+        } else {
+            // New failure or the file changed since - restart the backoff
+            failure.setFailureCount(1);
+            failure.setFirstFailedAt(now);
+        }
+
+        failure.setFileSize(size);
+        failure.setFileModifiedMillis(modifiedMillis);
+        failure.setLastError(error);
+        failure.setLastFailedAt(now);
+        failure.setRetryAfter(now.plusNanos(backoffMillis(failure.getFailureCount()) * 1_000_000L));
+
+        try {
+            failures.put(file.toString(), repository.save(failure));
+            log.warn("Quarantined {} after {} failed parse(s), retry after {}",
+                    file.getFileName(), failure.getFailureCount(), failure.getRetryAfter());
+        } catch (Exception e) {
+            log.error("Failed to persist parse failure for {}: {}", file, e.getMessage());
+        }
+    }
+
+    public void recordSuccess(Path file) {
+        if (!loaded || !failures.containsKey(file.toString())) {
+            return;
+        }
+
+        synchronized (this) {
+            ParseFailure failure = failures.remove(file.toString());
+            if (failure != null && failure.getId() != null) {
+                try {
+                    repository.deleteById(failure.getId());
+                    log.info("File parses again, removed from quarantine: {}", file.getFileName());
+                } catch (Exception e) {
+                    log.error("Failed to delete parse failure for {}: {}", file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Report of all known-bad files, most frequent failures first.
+     */
+    public List<ParseFailure> getQuarantinedFiles() {
+        ensureLoaded();
+        return failures.values().stream()
+                .sorted(Comparator.comparingInt(ParseFailure::getFailureCount).reversed()
+                        .thenComparing(ParseFailure::getFilePath))
+                .toList();
+    }
+
+    private long backoffMillis(int failureCount) {
+        int exponent = Math.min(failureCount - 1, 30);
+        return Math.min(initialBackoffMillis << exponent, maxBackoffMillis);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+
+        synchronized (this) {
+            if (!loaded) {
+                repository.findAll().forEach(failure -> failures.put(failure.getFilePath(), failure));
+                loaded = true;
+                log.info("Loaded {} quarantined files from parse failure registry", failures.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.sashkomusic.libraryagent.domain.service.utils;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped locks keyed by normalized path.
+ * Directory lock - exclusive, for whole-release work (ingest, reprocess).
+ * File lock - one file at a time, plus a shared lock on its directory, so single-file writes
+ * (rating, renames) run in parallel with each other but never during a release-wide operation.
+ * Never take a directory lock while holding a file lock.
+ */
+@Component
+public class PathLockManager {
+
+    private static final int STRIPES = 64;
+
+    private final ReentrantReadWriteLock[] directoryLocks = new ReentrantReadWriteLock[STRIPES];
+    private final ReentrantLock[] fileLocks = new ReentrantLock[STRIPES];
+
+    public PathLockManager() {
+        for (int i = 0; i < STRIPES; i++) {
+            directoryLocks[i] = new ReentrantReadWriteLock();
+            fileLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withDirectoryLock(String directoryPath, Supplier<T> action) {
+        return withLock(directoryLocks[stripe(Path.of(directoryPath))].writeLock(), action);
+    }
+
+    public <T> T withFileLock(Path file, Supplier<T> action) {
+        Path normalized = normalize(file);
+        Path directory = normalized.getParent();
+        Lock directoryLock = directory != null ? directoryLocks[stripe(directory)].readLock() : null;
+
+        if (directoryLock == null) {
+            return withLock(fileLocks[stripe(normalized)], action);
+        }
+        return withLock(directoryLock, () -> withLock(fileLocks[stripe(normalized)], action));
+    }
+
+    private static <T> T withLock(Lock lock, Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int stripe(Path path) {
+        return Math.floorMod(normalize(path).toString().hashCode(), STRIPES);
+    }
+
+    private static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+}
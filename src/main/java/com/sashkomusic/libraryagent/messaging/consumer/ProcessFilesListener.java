@@ -19,7 +19,7 @@ public class ProcessFilesListener {
     private final LibraryProcessingService processingService;
     private final LibraryProcessingResultProducer resultProducer;
 
-    @KafkaListener(topics = "process-library-tasks")
+    @KafkaListener(topics = "process-library-tasks", concurrency = "${processing.listener.concurrency:1}")
     public void handleProcessFilesTask(ProcessLibraryTaskDto task) {
         log.info("Received library processing task: chatId={}, masterId={}, files={}",
                 task.chatId(), task.metadata().masterId(), task.downloadedFiles().size());
@@ -19,7 +19,7 @@ public class ReprocessReleaseListener {
 
     @KafkaListener(
             topics = "reprocess-release-tasks",
-            concurrency = "1"
+            concurrency = "${reprocess.listener.concurrency:1}"
     )
     public void handleReprocessTask(ReprocessReleaseTaskDto task) {
         log.info("Received reprocess task: chatId={}, directoryPath={}, version={}, options={}",
@@ -39,13 +39,15 @@ public class ReprocessReleaseListener {
                     result.success(),
                     result.message(),
                     result.filesProcessed(),
-                    result.errors()
+                    result.errors(),
+                    result.filesWritten(),
+                    result.filesSkipped()
             );
 
             resultProducer.send(resultDto);
 
-            log.info("Reprocessing completed: success={}, filesProcessed={}, errors={}",
-                    result.success(), result.filesProcessed(), result.errors());
+            log.info("Reprocessing completed: success={}, filesProcessed={}, errors={}, written={}, skipped={}",
+                    result.success(), result.filesProcessed(), result.errors(), result.filesWritten(), result.filesSkipped());
 
         } catch (Exception ex) {
             log.error("Fatal error during reprocessing: {}", ex.getMessage(), ex);
@@ -56,7 +58,9 @@ public class ReprocessReleaseListener {
                     false,
                     "Fatal error: " + ex.getMessage(),
                     0,
-                    1
+                    1,
+                    0,
+                    0
             );
 
             resultProducer.send(errorDto);
@@ -1,12 +1,21 @@
 package com.sashkomusic.libraryagent.messaging.consumer.dto;
 
 import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.databind.JsonNode;
 
+/**
+ * Analysis result. Features may come inline - either the full result document ({@code result},
+ * same schema as the JSON file) or a packed float32 vector ({@code packedFeatures}, base64 in JSON,
+ * layout {@code featuresVersion}). {@code jsonResultPath} is the fallback when neither is present.
+ */
 @JsonTypeName("track_analysis_complete")
 public record TrackAnalysisCompleteDto(
         Long trackId,
         String jsonResultPath,
         boolean success,
-        String errorMessage
+        String errorMessage,
+        JsonNode result,
+        byte[] packedFeatures,
+        Short featuresVersion
 ) {
 }
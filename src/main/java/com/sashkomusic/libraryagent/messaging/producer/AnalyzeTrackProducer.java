@@ -4,8 +4,11 @@ import com.sashkomusic.libraryagent.messaging.producer.dto.AnalyzeTrackTaskDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+
 @Component
 @Slf4j
 @RequiredArgsConstructor
@@ -14,10 +17,10 @@ public class AnalyzeTrackProducer {
     private final KafkaTemplate<String, AnalyzeTrackTaskDto> kafkaTemplate;
     private static final String TOPIC = "analyze-track-tasks";
 
-    public void sendAnalysisTask(AnalyzeTrackTaskDto task) {
+    public CompletableFuture<SendResult<String, AnalyzeTrackTaskDto>> sendAnalysisTask(AnalyzeTrackTaskDto task) {
         log.info("Sending track analysis task for trackId={}, path={}",
                 task.trackId(), task.localPath());
 
-        kafkaTemplate.send(TOPIC, String.valueOf(task.trackId()), task);
+        return kafkaTemplate.send(TOPIC, String.valueOf(task.trackId()), task);
     }
 }
@@ -9,6 +9,8 @@ public record ReprocessReleaseResultDto(
         boolean success,
         String message,
         int filesProcessed,
-        int errors
+        int errors,
+        int filesWritten,
+        int filesSkipped
 ) {
 }
@@ -0,0 +1,45 @@
+package com.sashkomusic.libraryagent.web;
+
+import com.sashkomusic.libraryagent.domain.service.processFolder.BulkReprocessJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/reprocess/bulk")
+@RequiredArgsConstructor
+public class BulkReprocessController {
+
+    private final BulkReprocessJob bulkReprocessJob;
+
+    /**
+     * Starts reprocessing every release below the target version (defaults to processing.version).
+     */
+    @PostMapping
+    public ResponseEntity<BulkReprocessJob.Progress> start(
+            @RequestParam(required = false) Integer targetVersion,
+            @RequestParam(defaultValue = "false") boolean skipRetag
+    ) {
+        if (!bulkReprocessJob.start(targetVersion, skipRetag)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(bulkReprocessJob.getProgress());
+        }
+        return ResponseEntity.accepted().body(bulkReprocessJob.getProgress());
+    }
+
+    @GetMapping
+    public BulkReprocessJob.Progress getProgress() {
+        return bulkReprocessJob.getProgress();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> cancel() {
+        bulkReprocessJob.cancel();
+        return ResponseEntity.accepted().build();
+    }
+}
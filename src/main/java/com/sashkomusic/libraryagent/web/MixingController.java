@@ -0,0 +1,44 @@
+package com.sashkomusic.libraryagent.web;
+
+import com.sashkomusic.libraryagent.domain.service.mixing.HarmonicMixingIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/tracks")
+@RequiredArgsConstructor
+public class MixingController {
+
+    private static final int MAX_LIMIT = 500;
+
+    private final HarmonicMixingIndex harmonicIndex;
+
+    @Value("${mixing.harmonic.bpm-tolerance:6}")
+    private double defaultBpmTolerance;
+
+    @GetMapping("/{trackId}/harmonic-neighbours")
+    public ResponseEntity<List<HarmonicMixingIndex.Neighbour>> getHarmonicNeighbours(
+            @PathVariable Long trackId,
+            @RequestParam(required = false) Double tolerance,
+            @RequestParam(defaultValue = "true") boolean halfDouble,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        if (!harmonicIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        double bpmTolerance = tolerance != null ? tolerance : defaultBpmTolerance;
+        if (limit < 1 || bpmTolerance < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(harmonicIndex.findNeighbours(trackId, bpmTolerance, halfDouble, Math.min(limit, MAX_LIMIT)));
+    }
+}
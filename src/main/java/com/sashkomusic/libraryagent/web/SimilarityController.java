@@ -0,0 +1,32 @@
+package com.sashkomusic.libraryagent.web;
+
+import com.sashkomusic.libraryagent.domain.service.similarity.SimilarTrackIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/tracks")
+@RequiredArgsConstructor
+public class SimilarityController {
+
+    private final SimilarTrackIndex similarityIndex;
+
+    @GetMapping("/{trackId}/similar")
+    public ResponseEntity<List<SimilarTrackIndex.SimilarTrack>> getSimilarTracks(
+            @PathVariable Long trackId,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        if (!similarityIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(similarityIndex.findSimilar(trackId, limit));
+    }
+}
@@ -0,0 +1,25 @@
+package com.sashkomusic.libraryagent.web;
+
+import com.sashkomusic.libraryagent.domain.service.utils.ParseFailureRegistry;
+import com.sashkomusic.libraryagent.web.dto.QuarantinedFileDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+public class SyncReportController {
+
+    private final ParseFailureRegistry parseFailureRegistry;
+
+    @GetMapping("/quarantine")
+    public List<QuarantinedFileDto> getQuarantinedFiles() {
+        return parseFailureRegistry.getQuarantinedFiles().stream()
+                .map(QuarantinedFileDto::of)
+                .toList();
+    }
+}
@@ -0,0 +1,27 @@
+package com.sashkomusic.libraryagent.web.dto;
+
+import com.sashkomusic.libraryagent.domain.entity.ParseFailure;
+
+import java.time.LocalDateTime;
+
+public record QuarantinedFileDto(
+        String filePath,
+        long fileSize,
+        int failureCount,
+        String lastError,
+        LocalDateTime firstFailedAt,
+        LocalDateTime lastFailedAt,
+        LocalDateTime retryAfter
+) {
+    public static QuarantinedFileDto of(ParseFailure failure) {
+        return new QuarantinedFileDto(
+                failure.getFilePath(),
+                failure.getFileSize(),
+                failure.getFailureCount(),
+                failure.getLastError(),
+                failure.getFirstFailedAt(),
+                failure.getLastFailedAt(),
+                failure.getRetryAfter()
+        );
+    }
+}
@@ -0,0 +1,15 @@
+-- Negative cache for audio files that repeatedly fail to parse
+CREATE TABLE parse_failures (
+    id BIGSERIAL PRIMARY KEY,
+    file_path VARCHAR(1000) NOT NULL UNIQUE,
+    file_size BIGINT NOT NULL,
+    file_modified_millis BIGINT NOT NULL,
+    failure_count INTEGER NOT NULL DEFAULT 1,
+    last_error TEXT,
+    first_failed_at TIMESTAMP NOT NULL,
+    last_failed_at TIMESTAMP NOT NULL,
+    retry_after TIMESTAMP NOT NULL
+);
+
+COMMENT ON TABLE parse_failures IS 'Files skipped by tag parsing until they change or the backoff expires';
+COMMENT ON COLUMN parse_failures.retry_after IS 'Exponential backoff - parsing is retried after this time';
@@ -0,0 +1,5 @@
+-- Digest of the tag map extracted from the file, lets sync skip the per-tag merge
+-- when a file was touched (play counts, cue markers) without changing tracked tags
+ALTER TABLE tracks ADD COLUMN tags_digest VARCHAR(64);
+
+COMMENT ON COLUMN tracks.tags_digest IS 'SHA-256 (hex) of the canonical extracted tag map at last sync';
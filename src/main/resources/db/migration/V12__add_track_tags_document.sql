@@ -0,0 +1,23 @@
+-- Per-track JSONB tag document: one row read/written per track instead of ~20-30 track_tags rows
+ALTER TABLE tracks ADD COLUMN tags JSONB NOT NULL DEFAULT '{}'::jsonb;
+
+-- Backfill from the EAV rows
+UPDATE tracks t
+SET tags = agg.doc
+FROM (
+    SELECT track_id, jsonb_object_agg(tag_name, tag_value) AS doc
+    FROM track_tags
+    GROUP BY track_id
+) agg
+WHERE agg.track_id = t.id;
+
+-- Containment queries (tags @> '{"TKEY": "Am"}')
+CREATE INDEX idx_tracks_tags ON tracks USING GIN (tags jsonb_path_ops);
+
+-- Expression indexes for hot keys
+CREATE INDEX idx_tracks_tags_bpm ON tracks ((tags ->> 'TBPM'));
+CREATE INDEX idx_tracks_tags_initialkey ON tracks ((tags ->> 'INITIALKEY'));
+CREATE INDEX idx_tracks_tags_tkey ON tracks ((tags ->> 'TKEY'));
+CREATE INDEX idx_tracks_tags_rating ON tracks ((tags ->> 'RATING'));
+
+COMMENT ON COLUMN tracks.tags IS 'All tags from the audio file as a JSON object (frame name -> value)';
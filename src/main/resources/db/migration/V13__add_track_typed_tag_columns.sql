@@ -0,0 +1,84 @@
+-- Typed copies of hot tags, so BPM/key/rating filters are index range scans instead of casts over TEXT
+ALTER TABLE tracks
+    ADD COLUMN bpm NUMERIC(6, 2),
+    ADD COLUMN camelot_key SMALLINT,
+    ADD COLUMN rating SMALLINT,
+    ADD COLUMN energy SMALLINT;
+
+-- Mirrors CamelotKey.parse: Camelot (8A), Open Key (1m/1d) and musical notation (Am, F#m, Db)
+CREATE FUNCTION pg_temp.camelot_code(raw TEXT) RETURNS SMALLINT AS $$
+DECLARE
+    k TEXT := lower(trim(raw));
+    m TEXT[];
+    num INT;
+    is_major BOOLEAN;
+    pc INT;
+    fifths INT;
+BEGIN
+    IF k IS NULL OR k = '' THEN
+        RETURN NULL;
+    END IF;
+
+    m := regexp_match(k, '^(\d{1,2})\s*([abdm])$');
+    IF m IS NOT NULL THEN
+        num := m[1]::INT;
+        IF num < 1 OR num > 12 THEN
+            RETURN NULL;
+        END IF;
+        IF m[2] IN ('d', 'm') THEN
+            num := ((num + 6) % 12) + 1;
+            is_major := m[2] = 'd';
+        ELSE
+            is_major := m[2] = 'b';
+        END IF;
+        RETURN ((num - 1) * 2 + CASE WHEN is_major THEN 1 ELSE 0 END)::SMALLINT;
+    END IF;
+
+    m := regexp_match(k, '^([a-g])\s*([#♯b♭]?)\s*(m|min|minor|maj|major)?$');
+    IF m IS NULL THEN
+        RETURN NULL;
+    END IF;
+
+    pc := (ARRAY[9, 11, 0, 2, 4, 5, 7])[ascii(m[1]) - ascii('a') + 1];
+    IF m[2] IN ('#', '♯') THEN
+        pc := pc + 1;
+    ELSIF m[2] IN ('b', '♭') THEN
+        pc := pc + 11;
+    END IF;
+    pc := pc % 12;
+
+    is_major := m[3] IS NULL OR m[3] LIKE 'maj%';
+    fifths := (pc * 7) % 12;
+    num := CASE WHEN is_major THEN ((fifths + 7) % 12) + 1 ELSE ((fifths + 4) % 12) + 1 END;
+    RETURN ((num - 1) * 2 + CASE WHEN is_major THEN 1 ELSE 0 END)::SMALLINT;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+UPDATE tracks
+SET bpm = NULLIF(round(replace(trim(COALESCE(NULLIF(tags ->> 'TBPM', ''), tags ->> 'BPM')), ',', '.')::NUMERIC, 2), 0)
+WHERE trim(COALESCE(NULLIF(tags ->> 'TBPM', ''), tags ->> 'BPM')) ~ '^\d{1,4}([.,]\d+)?$';
+
+UPDATE tracks
+SET camelot_key = COALESCE(pg_temp.camelot_code(tags ->> 'INITIALKEY'), pg_temp.camelot_code(tags ->> 'TKEY'))
+WHERE tags ->> 'INITIALKEY' IS NOT NULL OR tags ->> 'TKEY' IS NOT NULL;
+
+UPDATE tracks
+SET rating = CASE
+        WHEN trim(COALESCE(NULLIF(tags ->> 'RATING WMP', ''), tags ->> 'RATING'))::INT = 0 THEN 0
+        ELSE GREATEST(1, LEAST(5, round(trim(COALESCE(NULLIF(tags ->> 'RATING WMP', ''), tags ->> 'RATING'))::INT / 51.0)))
+    END
+WHERE trim(COALESCE(NULLIF(tags ->> 'RATING WMP', ''), tags ->> 'RATING')) ~ '^\d{1,3}$';
+
+UPDATE tracks
+SET energy = substring(COALESCE(NULLIF(tags ->> 'DJ_ENERGY', ''), tags ->> 'TXXX:DJ_ENERGY') FROM '\d{1,3}')::SMALLINT
+WHERE COALESCE(NULLIF(tags ->> 'DJ_ENERGY', ''), tags ->> 'TXXX:DJ_ENERGY') ~ '\d';
+
+CREATE INDEX idx_tracks_camelot_key_bpm ON tracks(camelot_key, bpm);
+CREATE INDEX idx_tracks_bpm ON tracks(bpm);
+CREATE INDEX idx_tracks_rating ON tracks(rating);
+CREATE INDEX idx_tracks_energy ON tracks(energy);
+
+COMMENT ON COLUMN tracks.bpm IS 'BPM from TBPM/BPM tag';
+COMMENT ON COLUMN tracks.camelot_key IS 'Camelot key code: (number - 1) * 2 + (major ? 1 : 0), from INITIALKEY/TKEY';
+COMMENT ON COLUMN tracks.rating IS 'Rating in stars (0-5), from RATING WMP/RATING';
+COMMENT ON COLUMN tracks.energy IS 'DJ energy level from DJ_ENERGY tag';
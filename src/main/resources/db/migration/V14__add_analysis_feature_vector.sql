@@ -0,0 +1,49 @@
+-- Compact feature vector next to the wide DECIMAL columns: one real[] (layout AnalysisFeatures, NaN = missing)
+-- that bulk readers can decode straight into float arrays
+ALTER TABLE tracks_analyzed
+    ADD COLUMN features REAL[],
+    ADD COLUMN features_version SMALLINT;
+
+UPDATE tracks_analyzed
+SET features = ARRAY[
+        COALESCE(bpm::REAL, 'NaN'),
+        COALESCE(danceability::REAL, 'NaN'),
+        COALESCE(beats_loudness::REAL, 'NaN'),
+        COALESCE(onset_rate::REAL, 'NaN'),
+        COALESCE(mfcc_1_mean::REAL, 'NaN'),
+        COALESCE(mfcc_1_var::REAL, 'NaN'),
+        COALESCE(mfcc_2_mean::REAL, 'NaN'),
+        COALESCE(mfcc_2_var::REAL, 'NaN'),
+        COALESCE(mfcc_3_mean::REAL, 'NaN'),
+        COALESCE(mfcc_3_var::REAL, 'NaN'),
+        COALESCE(mfcc_4_mean::REAL, 'NaN'),
+        COALESCE(mfcc_4_var::REAL, 'NaN'),
+        COALESCE(mfcc_5_mean::REAL, 'NaN'),
+        COALESCE(mfcc_5_var::REAL, 'NaN'),
+        COALESCE(mfcc_6_mean::REAL, 'NaN'),
+        COALESCE(mfcc_6_var::REAL, 'NaN'),
+        COALESCE(mfcc_7_mean::REAL, 'NaN'),
+        COALESCE(mfcc_7_var::REAL, 'NaN'),
+        COALESCE(mfcc_8_mean::REAL, 'NaN'),
+        COALESCE(mfcc_8_var::REAL, 'NaN'),
+        COALESCE(mfcc_9_mean::REAL, 'NaN'),
+        COALESCE(mfcc_9_var::REAL, 'NaN'),
+        COALESCE(mfcc_10_mean::REAL, 'NaN'),
+        COALESCE(mfcc_10_var::REAL, 'NaN'),
+        COALESCE(mfcc_11_mean::REAL, 'NaN'),
+        COALESCE(mfcc_11_var::REAL, 'NaN'),
+        COALESCE(mfcc_12_mean::REAL, 'NaN'),
+        COALESCE(mfcc_12_var::REAL, 'NaN'),
+        COALESCE(mfcc_13_mean::REAL, 'NaN'),
+        COALESCE(mfcc_13_var::REAL, 'NaN'),
+        COALESCE(spectral_centroid::REAL, 'NaN'),
+        COALESCE(spectral_rolloff::REAL, 'NaN'),
+        COALESCE(dissonance::REAL, 'NaN'),
+        COALESCE(loudness::REAL, 'NaN'),
+        COALESCE(dynamic_complexity::REAL, 'NaN')
+    ]::REAL[],
+    features_version = 1
+WHERE error_message IS NULL OR error_message = '';
+
+COMMENT ON COLUMN tracks_analyzed.features IS 'All 35 features as real[] in AnalysisFeatures layout, NaN for missing values';
+COMMENT ON COLUMN tracks_analyzed.features_version IS 'Feature vector layout version (AnalysisFeatures.VERSION)';
@@ -0,0 +1,20 @@
+-- Persisted audio analysis scheduling state, one row per track
+CREATE TABLE analysis_requests (
+    track_id BIGINT PRIMARY KEY REFERENCES tracks(id) ON DELETE CASCADE,
+    state VARCHAR(20) NOT NULL,
+    analysis_version VARCHAR(20),
+    audio_signature VARCHAR(64),
+    priority INTEGER NOT NULL DEFAULT 0,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_error TEXT,
+    requested_at TIMESTAMP NOT NULL,
+    dispatched_at TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+CREATE INDEX idx_analysis_requests_queue ON analysis_requests(state, priority DESC, requested_at);
+
+COMMENT ON TABLE analysis_requests IS 'Audio analysis queue: PENDING -> IN_FLIGHT -> DONE/FAILED';
+COMMENT ON COLUMN analysis_requests.analysis_version IS 'Analyzer version the request was made for - outdated rows are re-queued by the backfill';
+COMMENT ON COLUMN analysis_requests.audio_signature IS 'Identity of the analysed audio - unchanged audio is not re-analysed';
+COMMENT ON COLUMN analysis_requests.priority IS 'Higher first - newly ingested releases go ahead of the backfill';
@@ -0,0 +1,6 @@
+-- Hash of the audio payload only (tags excluded), filled on ingest and sync
+ALTER TABLE tracks ADD COLUMN audio_fingerprint VARCHAR(16);
+
+CREATE INDEX idx_tracks_audio_fingerprint ON tracks(audio_fingerprint);
+
+COMMENT ON COLUMN tracks.audio_fingerprint IS 'xxHash64 of the MP3/FLAC audio frames, unchanged by tag edits - used to skip re-analysis and detect renames';
@@ -0,0 +1,6 @@
+-- Optimistic locking counters for rows written by several listeners and the sync concurrently
+ALTER TABLE tracks ADD COLUMN row_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE releases ADD COLUMN row_version BIGINT NOT NULL DEFAULT 0;
+
+COMMENT ON COLUMN tracks.row_version IS 'JPA @Version - bumped on every entity update, a stale write fails instead of overwriting';
+COMMENT ON COLUMN releases.row_version IS 'JPA @Version - bumped on every entity update, a stale write fails instead of overwriting';
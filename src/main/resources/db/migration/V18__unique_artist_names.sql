@@ -0,0 +1,28 @@
+-- Artist names become unique so concurrent ingests resolve to one row via INSERT ... ON CONFLICT.
+-- Existing duplicates are merged into the lowest id first.
+CREATE TEMP TABLE artist_duplicates AS
+SELECT a.id AS duplicate_id, k.keep_id
+FROM artists a
+JOIN (SELECT name, MIN(id) AS keep_id FROM artists GROUP BY name HAVING COUNT(*) > 1) k ON k.name = a.name
+WHERE a.id <> k.keep_id;
+
+INSERT INTO release_artists (release_id, artist_id)
+SELECT ra.release_id, d.keep_id
+FROM release_artists ra
+JOIN artist_duplicates d ON d.duplicate_id = ra.artist_id
+ON CONFLICT DO NOTHING;
+
+INSERT INTO track_artists (track_id, artist_id)
+SELECT ta.track_id, d.keep_id
+FROM track_artists ta
+JOIN artist_duplicates d ON d.duplicate_id = ta.artist_id
+ON CONFLICT DO NOTHING;
+
+-- Links to the duplicates go with them (ON DELETE CASCADE)
+DELETE FROM artists WHERE id IN (SELECT duplicate_id FROM artist_duplicates);
+
+DROP TABLE artist_duplicates;
+
+-- The unique constraint's index replaces the plain one
+DROP INDEX idx_artists_name;
+ALTER TABLE artists ADD CONSTRAINT uk_artists_name UNIQUE (name);
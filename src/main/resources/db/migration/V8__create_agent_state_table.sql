@@ -0,0 +1,12 @@
+-- Key/value store for agent runtime state (e.g. clean shutdown timestamp)
+CREATE TABLE agent_state (
+    state_key VARCHAR(100) PRIMARY KEY,
+    state_value TEXT,
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Startup catch-up sync and the file watcher look tracks up by path
+CREATE INDEX IF NOT EXISTS idx_tracks_local_path ON tracks(local_path);
+
+COMMENT ON TABLE agent_state IS 'Persistent runtime state of the library agent';
+COMMENT ON COLUMN agent_state.state_value IS 'State value as string, NULL when cleared';
@@ -0,0 +1,12 @@
+-- File stats recorded at ingest/sync, so scanners can classify files without parsing tags
+ALTER TABLE tracks
+    ADD COLUMN file_size BIGINT,
+    ADD COLUMN file_modified_millis BIGINT;
+
+-- Path-ordered cursor for the filesystem merge-join scanner (byte order matches Java code point order)
+CREATE INDEX idx_tracks_local_path_c ON tracks(local_path COLLATE "C");
+
+CREATE INDEX IF NOT EXISTS idx_releases_directory_path ON releases(directory_path);
+
+COMMENT ON COLUMN tracks.file_size IS 'Audio file size in bytes at last sync';
+COMMENT ON COLUMN tracks.file_modified_millis IS 'Audio file mtime (epoch millis) at last sync';
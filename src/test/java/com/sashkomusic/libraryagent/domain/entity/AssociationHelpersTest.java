@@ -0,0 +1,60 @@
+package com.sashkomusic.libraryagent.domain.entity;
+
+import org.hibernate.Hibernate;
+import org.hibernate.collection.spi.PersistentSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Association helpers must not initialize lazy inverse collections: an uninitialized PersistentSet
+ * stands in for "every track of a prolific artist" - touching it without a session would throw.
+ */
+class AssociationHelpersTest {
+
+    @Test
+    void addingTrackToArtistDoesNotLoadArtistTracks() {
+        Artist artist = new Artist("prolific artist");
+        artist.setTracks(new PersistentSet<>());
+        Track track = new Track("title", 1);
+
+        track.addArtist(artist);
+        track.removeArtist(artist);
+        track.addArtist(artist);
+
+        assertThat(track.getArtists()).containsExactly(artist);
+        assertThat(Hibernate.isInitialized(artist.getTracks())).isFalse();
+    }
+
+    @Test
+    void addingReleaseArtistAndTagDoesNotLoadTheirReleases() {
+        Artist artist = new Artist("prolific artist");
+        artist.setReleases(new PersistentSet<>());
+        Tag tag = new Tag("techno");
+        tag.setReleases(new PersistentSet<>());
+        Release release = new Release();
+
+        release.addArtist(artist);
+        release.addTag(tag);
+
+        assertThat(release.getArtists()).containsExactly(artist);
+        assertThat(release.getTags()).containsExactly(tag);
+        assertThat(Hibernate.isInitialized(artist.getReleases())).isFalse();
+        assertThat(Hibernate.isInitialized(tag.getReleases())).isFalse();
+    }
+
+    @Test
+    void loadedInverseCollectionIsKeptInSync() {
+        Artist artist = new Artist("artist");
+        artist.setTracks(new HashSet<>());
+        Track track = new Track("title", 1);
+
+        track.addArtist(artist);
+        assertThat(artist.getTracks()).containsExactly(track);
+
+        track.removeArtist(artist);
+        assertThat(artist.getTracks()).isEmpty();
+    }
+}
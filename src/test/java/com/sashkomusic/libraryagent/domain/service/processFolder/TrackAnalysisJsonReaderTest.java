@@ -0,0 +1,83 @@
+package com.sashkomusic.libraryagent.domain.service.processFolder;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sashkomusic.libraryagent.domain.entity.Track;
+import com.sashkomusic.libraryagent.domain.model.AnalysisFeatures;
+import com.sashkomusic.libraryagent.domain.service.processFolder.TrackAnalysisJsonReader.ParsedAnalysis;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TrackAnalysisJsonReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TrackAnalysisJsonReader reader = new TrackAnalysisJsonReader(objectMapper);
+    private final Track track = new Track("title", 1);
+
+    @Test
+    void structuredErrorMessageIsSkippedWithoutLosingTheRestOfTheDocument() throws IOException {
+        String json = """
+                {"errorMessage": {"code": 3, "detail": ["decoder", "eof"]},
+                 "success": true,
+                 "features": {"rhythmic": {"bpm": 124.0}}}
+                """;
+
+        ParsedAnalysis parsed = parse(json);
+
+        assertThat(parsed.success()).isTrue();
+        assertThat(parsed.errorMessage()).contains("decoder");
+        assertThat(parsed.values()[0]).isEqualTo(124.0);
+        assertThat(reader.toAnalysis(parsed, track).hasError()).isTrue();
+    }
+
+    @Test
+    void streamingReaderMatchesTreeReader() throws IOException {
+        String json = document(1_000);
+
+        float[] streamed = toFloats(parse(json).values());
+        float[] tree = AnalysisFeatures.fromAnalysis(reader.toAnalysis(objectMapper.readTree(json), track));
+
+        assertThat(streamed).containsExactly(tree, within(1e-4f));
+    }
+
+    private ParsedAnalysis parse(String json) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            return reader.parse(parser);
+        }
+    }
+
+    private static String document(int frames) {
+        Random random = new Random(5);
+        StringBuilder json = new StringBuilder("{\"success\": true, \"errorMessage\": null, \"frames\": {\"loudness\": [");
+        for (int i = 0; i < frames; i++) {
+            json.append(i == 0 ? "" : ",").append(random.nextFloat());
+        }
+        json.append("]}, \"features\": {");
+
+        String group = null;
+        for (int i = 0; i < AnalysisFeatures.COUNT; i++) {
+            if (!AnalysisFeatures.groupOf(i).equals(group)) {
+                json.append(group == null ? "" : "}, ");
+                group = AnalysisFeatures.groupOf(i);
+                json.append('"').append(group).append("\": {");
+            } else {
+                json.append(", ");
+            }
+            json.append('"').append(AnalysisFeatures.NAMES.get(i)).append("\": ").append(random.nextFloat() * 100);
+        }
+        return json.append("}}}").toString();
+    }
+
+    private static float[] toFloats(double[] values) {
+        float[] floats = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            floats[i] = (float) values[i];
+        }
+        return floats;
+    }
+}
@@ -0,0 +1,89 @@
+package com.sashkomusic.libraryagent.domain.service.similarity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswGraphTest {
+
+    private static final int NODES = 3000;
+    private static final int DIMENSIONS = 12;
+    private static final int K = 10;
+
+    private final float[][] vectors = randomVectors();
+
+    @Test
+    void recallAgainstExactScanIsHigh() {
+        HnswGraph graph = new HnswGraph(16, 200, this::distance);
+        for (int node = 0; node < NODES; node++) {
+            graph.insert(node);
+        }
+
+        int hits = 0;
+        int queries = 100;
+        for (int query = 0; query < queries; query++) {
+            int q = query * (NODES / queries);
+            Set<Integer> exact = exactNearest(q, new BitSet());
+            hits += (int) graph.search(other -> distance(q, other), K, 100, new BitSet()).stream()
+                    .filter(scored -> exact.contains(scored.node()))
+                    .count();
+        }
+
+        assertThat(hits / (double) (queries * K)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void deletedNodesAreNeverReturned() {
+        HnswGraph graph = new HnswGraph(16, 200, this::distance);
+        for (int node = 0; node < NODES; node++) {
+            graph.insert(node);
+        }
+        BitSet deleted = new BitSet();
+        for (int node = 0; node < NODES; node += 3) {
+            deleted.set(node);
+        }
+
+        List<HnswGraph.Scored> result = graph.search(other -> distance(1, other), K, 100, deleted);
+
+        assertThat(result).hasSize(K).noneMatch(scored -> deleted.get(scored.node()));
+        assertThat(result.stream().map(HnswGraph.Scored::node).collect(Collectors.toSet()))
+                .containsAnyElementsOf(exactNearest(1, deleted));
+    }
+
+    private Set<Integer> exactNearest(int query, BitSet deleted) {
+        return IntStream.range(0, NODES)
+                .filter(node -> !deleted.get(node))
+                .boxed()
+                .sorted(Comparator.comparingDouble(node -> distance(query, node)))
+                .limit(K)
+                .collect(Collectors.toSet());
+    }
+
+    private double distance(int a, int b) {
+        double sum = 0;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            double diff = vectors[a][d] - vectors[b][d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private static float[][] randomVectors() {
+        Random random = new Random(42);
+        float[][] vectors = new float[NODES][DIMENSIONS];
+        for (float[] vector : vectors) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+}
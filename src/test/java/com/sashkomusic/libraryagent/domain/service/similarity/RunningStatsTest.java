@@ -0,0 +1,55 @@
+package com.sashkomusic.libraryagent.domain.service.similarity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RunningStatsTest {
+
+    private static final int DIMENSIONS = 6;
+
+    @Test
+    void removingVectorsMatchesStatsBuiltFromTheRemainder() {
+        Random random = new Random(7);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            float[] vector = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = (float) (random.nextGaussian() * (d + 1) * 10 + d * 100);
+            }
+            vector[i % DIMENSIONS] = i % 7 == 0 ? Float.NaN : vector[i % DIMENSIONS];
+            vectors.add(vector);
+        }
+
+        RunningStats incremental = new RunningStats(DIMENSIONS);
+        vectors.forEach(incremental::add);
+        vectors.subList(0, 500).forEach(incremental::remove);
+
+        RunningStats fresh = new RunningStats(DIMENSIONS);
+        vectors.subList(500, 1000).forEach(fresh::add);
+
+        float[] expected = fresh.inverseVariances();
+        float[] actual = incremental.inverseVariances();
+        for (int d = 0; d < DIMENSIONS; d++) {
+            assertThat(actual[d]).isCloseTo(expected[d], within(expected[d] * 1e-3f));
+        }
+    }
+
+    @Test
+    void removingEverythingResetsTheStats() {
+        RunningStats stats = new RunningStats(2);
+        float[] a = {1f, 2f};
+        float[] b = {3f, 8f};
+        stats.add(a);
+        stats.add(b);
+        stats.remove(a);
+        stats.remove(b);
+
+        assertThat(stats.inverseVariances()).containsExactly(0f, 0f);
+    }
+}
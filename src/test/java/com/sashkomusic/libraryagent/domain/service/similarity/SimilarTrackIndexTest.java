@@ -0,0 +1,94 @@
+package com.sashkomusic.libraryagent.domain.service.similarity;
+
+import com.sashkomusic.libraryagent.domain.model.AnalysisFeatures;
+import com.sashkomusic.libraryagent.domain.repository.FeatureVectorRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class SimilarTrackIndexTest {
+
+    private final FeatureVectorRepository repository = mock(FeatureVectorRepository.class);
+    private final Random random = new Random(11);
+
+    @Test
+    void reanalysedTracksAreCompactedAwayInExactMode() {
+        SimilarTrackIndex index = index(1_000_000);
+        index.rebuild();
+        for (long trackId = 1; trackId <= 100; trackId++) {
+            index.onAnalysisChanged(trackId, features());
+        }
+
+        for (int round = 0; round < 20; round++) {
+            for (long trackId = 1; trackId <= 100; trackId++) {
+                index.onAnalysisChanged(trackId, features());
+                assertThat(index.matrixRows()).isLessThanOrEqualTo(index.size() * 4 / 3 + 1);
+            }
+        }
+        assertThat(index.size()).isEqualTo(100);
+        assertThat(index.findSimilar(1L, 200)).hasSize(99);
+    }
+
+    @Test
+    void removedTracksNeverComeBackInApproximateMode() {
+        SimilarTrackIndex index = index(50);
+        index.rebuild();
+        for (long trackId = 1; trackId <= 300; trackId++) {
+            index.onAnalysisChanged(trackId, features());
+        }
+        for (long trackId = 2; trackId <= 300; trackId += 2) {
+            index.remove(trackId);
+        }
+
+        assertThat(index.size()).isEqualTo(150);
+        assertThat(index.matrixRows()).isLessThanOrEqualTo(index.size() * 4 / 3 + 1);
+        assertThat(index.findSimilar(1L, 20))
+                .hasSize(20)
+                .allMatch(similar -> similar.trackId() % 2 == 1);
+    }
+
+    @Test
+    void updatesDuringRebuildAreReplayedOverTheLoadedVectors() {
+        SimilarTrackIndex index = index(1_000_000);
+        doAnswer(invocation -> {
+            FeatureVectorRepository.VectorConsumer consumer = invocation.getArgument(0);
+            consumer.accept(1L, features());
+            // Listener threads land while the load is still running
+            index.onAnalysisChanged(3L, features());
+            index.remove(1L);
+            consumer.accept(2L, features());
+            return null;
+        }).when(repository).forEachVector(any());
+
+        index.rebuild();
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.findSimilar(2L, 10))
+                .extracting(SimilarTrackIndex.SimilarTrack::trackId)
+                .containsExactly(3L);
+        assertThat(index.findSimilar(1L, 10)).isEmpty();
+    }
+
+    private SimilarTrackIndex index(int hnswThreshold) {
+        SimilarTrackIndex index = new SimilarTrackIndex(repository);
+        ReflectionTestUtils.setField(index, "hnswThreshold", hnswThreshold);
+        ReflectionTestUtils.setField(index, "hnswM", 8);
+        ReflectionTestUtils.setField(index, "hnswEfConstruction", 100);
+        ReflectionTestUtils.setField(index, "hnswEfSearch", 100);
+        return index;
+    }
+
+    private float[] features() {
+        float[] features = new float[AnalysisFeatures.COUNT];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = (float) random.nextGaussian();
+        }
+        return features;
+    }
+}
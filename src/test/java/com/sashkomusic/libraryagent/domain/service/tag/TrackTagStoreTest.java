@@ -0,0 +1,62 @@
+package com.sashkomusic.libraryagent.domain.service.tag;
+
+import com.sashkomusic.libraryagent.domain.entity.Track;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrackTagStoreTest {
+
+    @Test
+    void eavModeWritesDocumentAndRows() {
+        TrackTagStore store = new TrackTagStore("eav");
+        Track track = new Track("title", 1);
+
+        store.setTag(track, "TBPM", "124");
+        store.prependToTag(track, "COMM", "peak");
+        store.prependToTag(track, "COMM", "energy 7");
+
+        assertThat(track.getTagDocument()).containsEntry("TBPM", "124").containsEntry("COMM", "energy 7; peak");
+        assertThat(track.getTags()).containsOnlyKeys("TBPM", "COMM");
+        assertThat(track.getTags().get("COMM").getTagValue()).isEqualTo("energy 7; peak");
+        assertThat(store.lastSyncTime(track)).isPresent();
+
+        store.removeTag(track, "TBPM");
+        assertThat(track.getTagDocument()).doesNotContainKey("TBPM");
+        assertThat(track.getTags()).doesNotContainKey("TBPM");
+    }
+
+    @Test
+    void jsonbModeLeavesRowsAloneAndHasNoRowTimestamp() {
+        TrackTagStore store = new TrackTagStore("jsonb");
+        Track track = new Track("title", 1);
+
+        store.setTag(track, "TBPM", "124");
+        store.removeTag(track, "TKEY");
+
+        assertThat(track.getTagDocument()).containsEntry("TBPM", "124");
+        assertThat(track.getBpm()).isEqualByComparingTo("124");
+        assertThat(track.getTags()).isEmpty();
+        assertThat(store.lastSyncTime(track)).isEmpty();
+    }
+
+    @Test
+    void unchangedValueDoesNotTouchTheRow() {
+        TrackTagStore store = new TrackTagStore("eav");
+        Track track = new Track("title", 1);
+        store.setTag(track, "TKEY", "Am");
+        var syncedAt = track.getTags().get("TKEY").getLastSyncedAt();
+
+        store.setTag(track, "TKEY", "Am");
+
+        assertThat(track.getTags().get("TKEY").getLastSyncedAt()).isSameAs(syncedAt);
+    }
+
+    @Test
+    void unknownModeFailsStartup() {
+        assertThatThrownBy(() -> new TrackTagStore("kv"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("tags.storage");
+    }
+}
@@ -0,0 +1,101 @@
+-- Tag storage comparison at 100k tracks: track_tags rows (eav) vs the tracks.tags JSONB document (jsonb).
+-- Self-contained - builds its own tables in a throwaway "bench" schema with the same columns and indexes
+-- as V5 / V12, so it can run against any scratch PostgreSQL database:
+--
+--   psql -d scratch -f src/test/resources/bench/tag-storage-100k.sql
+--
+-- Compare the EXPLAIN (ANALYZE) timings of each eav/jsonb pair and the sizes at the end.
+
+\timing on
+SET client_min_messages = warning;
+
+DROP SCHEMA IF EXISTS bench CASCADE;
+CREATE SCHEMA bench;
+
+CREATE TABLE bench.tracks (
+    id BIGSERIAL PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    tags JSONB NOT NULL DEFAULT '{}'::jsonb
+);
+
+CREATE TABLE bench.track_tags (
+    id BIGSERIAL PRIMARY KEY,
+    track_id BIGINT NOT NULL REFERENCES bench.tracks(id) ON DELETE CASCADE,
+    tag_name VARCHAR(100) NOT NULL,
+    tag_value TEXT NOT NULL,
+    last_synced_at TIMESTAMP,
+    CONSTRAINT uk_bench_track_tag UNIQUE (track_id, tag_name)
+);
+
+-- 100k tracks x 25 tags: a few hot keys with realistic cardinality plus filler frames
+INSERT INTO bench.tracks (title)
+SELECT 'track ' || n FROM generate_series(1, 100000) n;
+
+INSERT INTO bench.track_tags (track_id, tag_name, tag_value, last_synced_at)
+SELECT t.id, tag.name, tag.value, now()
+FROM bench.tracks t
+CROSS JOIN LATERAL (
+    VALUES ('TBPM', (110 + t.id % 30)::text),
+           ('TKEY', ((t.id % 12) + 1)::text || CASE WHEN t.id % 2 = 0 THEN 'A' ELSE 'B' END),
+           ('INITIALKEY', ((t.id % 12) + 1)::text || CASE WHEN t.id % 2 = 0 THEN 'A' ELSE 'B' END),
+           ('RATING', ((t.id % 6) * 51)::text),
+           ('TPE1', 'artist ' || (t.id % 5000)),
+           ('TIT2', 'track ' || t.id),
+           ('TALB', 'album ' || (t.id / 10)),
+           ('TPUB', 'label ' || (t.id % 800)),
+           ('TCON', 'genre ' || (t.id % 40)),
+           ('COMM', 'comment for ' || t.id)
+) AS tag(name, value)
+UNION ALL
+SELECT t.id, 'TXXX:FILLER_' || f, md5(t.id::text || f), now()
+FROM bench.tracks t, generate_series(1, 15) f;
+
+UPDATE bench.tracks t
+SET tags = agg.doc
+FROM (SELECT track_id, jsonb_object_agg(tag_name, tag_value) AS doc FROM bench.track_tags GROUP BY track_id) agg
+WHERE agg.track_id = t.id;
+
+CREATE INDEX idx_bench_track_tags_track_id ON bench.track_tags(track_id);
+CREATE INDEX idx_bench_track_tags_name_value ON bench.track_tags(tag_name, tag_value);
+CREATE INDEX idx_bench_tracks_tags ON bench.tracks USING GIN (tags jsonb_path_ops);
+CREATE INDEX idx_bench_tracks_tags_tkey ON bench.tracks ((tags ->> 'TKEY'));
+
+VACUUM ANALYZE bench.tracks;
+VACUUM ANALYZE bench.track_tags;
+
+-- 1. Load all tags of 1000 tracks (sync pass / track view)
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+SELECT track_id, tag_name, tag_value FROM bench.track_tags WHERE track_id BETWEEN 50000 AND 50999;
+
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+SELECT id, tags FROM bench.tracks WHERE id BETWEEN 50000 AND 50999;
+
+-- 2. Exact tag lookup (all tracks in 8A)
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+SELECT t.id FROM bench.tracks t
+JOIN bench.track_tags tt ON tt.track_id = t.id
+WHERE tt.tag_name = 'TKEY' AND tt.tag_value = '8A';
+
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+SELECT id FROM bench.tracks WHERE tags @> '{"TKEY": "8A"}';
+
+-- 3. One tag changed on 10k tracks (rating sweep), rolled back so both variants start from the same data
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+UPDATE bench.track_tags SET tag_value = '255', last_synced_at = now()
+WHERE tag_name = 'RATING' AND track_id <= 10000;
+ROLLBACK;
+
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS, SUMMARY)
+UPDATE bench.tracks SET tags = jsonb_set(tags, '{RATING}', '"255"') WHERE id <= 10000;
+ROLLBACK;
+
+-- 4. Storage
+SELECT relname,
+       pg_size_pretty(pg_table_size(oid)) AS table_size,
+       pg_size_pretty(pg_indexes_size(oid)) AS index_size
+FROM pg_class
+WHERE relname IN ('tracks', 'track_tags') AND relnamespace = 'bench'::regnamespace;
+
+DROP SCHEMA bench CASCADE;